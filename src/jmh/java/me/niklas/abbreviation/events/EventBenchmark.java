@@ -0,0 +1,70 @@
+package me.niklas.abbreviation.events;
+
+import me.niklas.abbreviation.enums.EventType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Firing events: the throughput while the subscribers keep up with the firing thread, and the latency
+ * until a single event has been delivered.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBenchmark {
+
+    private static final Object PARAM = new Object();
+
+    private EventManager manager;
+    private final AtomicLong delivered = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        manager = new EventManager();
+        manager.subscribeFor((type, param) -> delivered.incrementAndGet(), EventType.RUN_COMBINATION, EventType.SHOW_MESSAGE);
+        manager.subscribeFor((type, param) -> { //A second subscriber of the throughput type
+        }, EventType.SHOW_MESSAGE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.performExit();
+    }
+
+    /**
+     * Fires to two subscribers. Blocks when their queues are full, so this is bound by the delivery.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void fire() {
+        manager.fire(EventType.SHOW_MESSAGE, PARAM);
+    }
+
+    /**
+     * Fires a single event and waits until it has been delivered.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() {
+        long target = delivered.get() + 1;
+        manager.fire(EventType.RUN_COMBINATION, PARAM);
+        while (delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
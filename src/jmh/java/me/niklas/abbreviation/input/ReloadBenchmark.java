@@ -0,0 +1,67 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.util.SyntheticCombinations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete reload of a combination directory, until every file has been read. Every file runs its init script,
+ * so large directories take long: add {@code -p size=100000} explicitly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReloadBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean lazy;
+
+    private File directory;
+    private EventManager events;
+    private CombinationManager manager;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = SyntheticCombinations.directory(size, 42);
+        events = new EventManager();
+        manager = new CombinationManager(events);
+        manager.setLazyLoading(lazy);
+        manager.onEvent(EventType.RELOAD, directory.getAbsolutePath()); //Sets the directory
+        manager.getLoading().join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.onExit();
+        events.performExit();
+        SyntheticCombinations.delete(directory);
+    }
+
+    @Benchmark
+    public void reload() {
+        manager.reload();
+        manager.getLoading().join();
+    }
+}
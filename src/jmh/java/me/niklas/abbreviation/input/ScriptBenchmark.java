@@ -0,0 +1,83 @@
+package me.niklas.abbreviation.input;
+
+import bsh.EvalError;
+import bsh.Interpreter;
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.InterpreterPool;
+import me.niklas.abbreviation.util.SyntheticCombinations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running a run script: evaluating its source every time compared to invoking the method cached by the
+ * {@link ScriptCache}, also from several threads sharing one {@link InterpreterPool}, and running it compiled
+ * by the {@link ScriptCompiler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptBenchmark {
+
+    private static final String DEFAULT_CODE = "import me.niklas.abbreviation.enums.*;\n";
+
+    private File directory;
+    private Combination combination;
+    private Interpreter interpreter;
+    private ScriptCache cache;
+    private ScriptCache compiled;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = SyntheticCombinations.directory(1, 42);
+        File[] files = directory.listFiles();
+        combination = new Combination(files[0]);
+        interpreter = new Interpreter();
+        cache = new ScriptCache(new InterpreterPool(Collections.emptyMap(), DEFAULT_CODE, 4, 4), DEFAULT_CODE);
+        compiled = new ScriptCache(new InterpreterPool(), DEFAULT_CODE);
+        compiled.setCompiler(new ScriptCompiler(Collections.emptyMap(), DEFAULT_CODE));
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticCombinations.delete(directory);
+    }
+
+    @Benchmark
+    public Object eval() throws EvalError {
+        return interpreter.eval(DEFAULT_CODE + combination.getRunScript());
+    }
+
+    @Benchmark
+    public Object cached() throws Exception {
+        return cache.invoke(combination);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object cachedConcurrent() throws Exception {
+        return cache.invoke(combination);
+    }
+
+    @Benchmark
+    public Object compiled() throws Exception {
+        return compiled.invoke(combination);
+    }
+}
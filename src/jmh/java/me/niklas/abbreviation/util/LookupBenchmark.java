@@ -0,0 +1,100 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact lookups (what {@code CombinationManager.getCombinationForInput} does for registered combinations) and the
+ * search for preview candidates (what {@code CombinationManager.preview} does before showing the window).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    private static final int PREVIEW_LIMIT = 6;
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private CombinationIndex index;
+    private GamepadInput[][] hits;
+    private GamepadInput[][] misses;
+    private GamepadInput[][] prefixes;
+    private int position = 0;
+
+    @Setup
+    public void setUp() {
+        GamepadInput[][] inputs = SyntheticCombinations.inputs(size * 2, 42);
+        index = new CombinationIndex();
+        hits = new GamepadInput[size][];
+        misses = new GamepadInput[size][];
+        for (int i = 0; i < size; i++) {
+            hits[i] = inputs[2 * i];
+            misses[i] = inputs[2 * i + 1];
+            index.add(new Combination(hits[i], "", ""));
+        }
+        prefixes = SyntheticCombinations.prefixes(hits);
+    }
+
+    private int next() {
+        int p = position;
+        position = p + 1 == size ? 0 : p + 1;
+        return p;
+    }
+
+    @Benchmark
+    public Combination lookupHit() {
+        return index.get(hits[next()]);
+    }
+
+    @Benchmark
+    public Combination lookupMiss() {
+        return index.get(misses[next()]);
+    }
+
+    /**
+     * Finds the node of a partially typed input and collects up to six completions.
+     */
+    @Benchmark
+    public List<Combination> previewCandidates() {
+        List<Combination> result = new ArrayList<>();
+        index.completions(index.find(prefixes[next()]), PREVIEW_LIMIT, result);
+        return result;
+    }
+
+    /**
+     * Types a complete input one button at a time, searching the preview candidates after every button like the
+     * preview does.
+     */
+    @Benchmark
+    public int typing() {
+        GamepadInput[] input = hits[next()];
+        CombinationIndex.Cursor cursor = index.cursor();
+        List<Combination> result = new ArrayList<>();
+        for (int length = 1; length <= input.length; length++) {
+            GamepadInput[] current = Arrays.copyOf(input, length);
+            result.clear();
+            index.completions(cursor.seek(current), PREVIEW_LIMIT, result);
+        }
+        return result.size();
+    }
+}
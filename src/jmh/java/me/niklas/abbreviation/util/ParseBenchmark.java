@@ -0,0 +1,71 @@
+package me.niklas.abbreviation.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading combination files: the indices from the file name only ({@code readIndices}) and the complete file
+ * including its init script ({@code readScript} + {@code executeInitScript}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final int FILES = 100;
+
+    private File directory;
+    private File[] files;
+    private int position = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = SyntheticCombinations.directory(FILES, 42);
+        files = directory.listFiles();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticCombinations.delete(directory);
+    }
+
+    private File next() {
+        int p = position;
+        position = p + 1 == files.length ? 0 : p + 1;
+        return files[p];
+    }
+
+    @Benchmark
+    public Object readIndices() {
+        return Combination.getInputForFile(next());
+    }
+
+    @Benchmark
+    public Combination registerLazy() {
+        return new Combination(next(), true);
+    }
+
+    @Benchmark
+    public Combination readFile() {
+        Combination combination = new Combination(next(), true);
+        combination.load();
+        return combination;
+    }
+}
@@ -0,0 +1,124 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates reproducible combinations for the benchmarks. START and BACK_SELECT are never used, as they can not be
+ * typed as part of a combination.
+ */
+public final class SyntheticCombinations {
+
+    /**
+     * The maximum length of a generated input, same as the maximum typed by the InputProcessor.
+     */
+    public static final int MAX_LENGTH = 10;
+
+    private static final GamepadInput[] TYPEABLE = Arrays.stream(GamepadInput.values())
+            .filter(i -> i != GamepadInput.NONE && i != GamepadInput.START && i != GamepadInput.BACK_SELECT)
+            .toArray(GamepadInput[]::new);
+
+    private SyntheticCombinations() {
+    }
+
+    /**
+     * @param count The amount of inputs.
+     * @param seed  The seed of the generator, the same seed always returns the same inputs.
+     * @return Distinct random inputs with a length of 1 to {@link #MAX_LENGTH}.
+     */
+    public static GamepadInput[][] inputs(int count, long seed) {
+        Random random = new Random(seed);
+        Set<List<GamepadInput>> seen = new HashSet<>();
+        GamepadInput[][] result = new GamepadInput[count][];
+        for (int i = 0; i < count; ) {
+            GamepadInput[] input = new GamepadInput[1 + random.nextInt(MAX_LENGTH)];
+            for (int j = 0; j < input.length; j++) {
+                input[j] = TYPEABLE[random.nextInt(TYPEABLE.length)];
+            }
+            if (seen.add(Arrays.asList(input))) result[i++] = input;
+        }
+        return result;
+    }
+
+    /**
+     * @param input The input.
+     * @return The file name of a combination, e.g. 2-4-5.txt.
+     */
+    public static String fileName(GamepadInput[] input) {
+        StringBuilder builder = new StringBuilder();
+        for (GamepadInput i : input) {
+            if (builder.length() > 0) builder.append('-');
+            builder.append(i.ordinal());
+        }
+        return builder.append(".txt").toString();
+    }
+
+    /**
+     * @param number A number identifying the combination.
+     * @return The content of a combination file with a comment, an init and a run script.
+     */
+    public static String script(int number) {
+        return "//Generated for benchmarks\n" +
+                ":init\n" +
+                "combination.setName(\"Benchmark " + number + "\");\n" +
+                ":run\n" +
+                "int sum = 0;\n" +
+                "for (int i = 0; i < 10; i++) sum += i;\n" +
+                "return \"Benchmark " + number + ": \" + sum;\n";
+    }
+
+    /**
+     * Writes a combination directory to a new temporary directory.
+     *
+     * @param count The amount of combination files.
+     * @param seed  The seed of the generated inputs.
+     * @return The directory.
+     * @throws IOException If the files can not be written.
+     */
+    public static File directory(int count, long seed) throws IOException {
+        File directory = Files.createTempDirectory("abbreviation-benchmark").toFile();
+        GamepadInput[][] inputs = inputs(count, seed);
+        for (int i = 0; i < inputs.length; i++) {
+            Files.write(new File(directory, fileName(inputs[i])).toPath(), script(i).getBytes(StandardCharsets.UTF_8));
+        }
+        return directory;
+    }
+
+    /**
+     * Deletes a directory created by {@link #directory(int, long)}.
+     *
+     * @param directory The directory.
+     */
+    public static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) delete(file); //e.g. compiled scripts
+                else file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * @param inputs The inputs.
+     * @return The inputs shortened to their first half (at least one input), e.g. to simulate typing.
+     */
+    public static GamepadInput[][] prefixes(GamepadInput[][] inputs) {
+        List<GamepadInput[]> result = new ArrayList<>(inputs.length);
+        for (GamepadInput[] input : inputs) {
+            result.add(Arrays.copyOf(input, Math.max(1, input.length / 2)));
+        }
+        return result.toArray(new GamepadInput[0][]);
+    }
+}
@@ -1,14 +1,25 @@
 package me.niklas.abbreviation;
 
+import me.niklas.abbreviation.enums.GamepadInput;
 import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.events.TraceRecorder;
+import me.niklas.abbreviation.events.TraceReplayer;
 import me.niklas.abbreviation.input.CombinationManager;
 import me.niklas.abbreviation.input.GamepadInputReceiver;
 import me.niklas.abbreviation.input.InputProcessor;
+import me.niklas.abbreviation.metrics.Metrics;
+import me.niklas.abbreviation.remote.RemoteServer;
 import me.niklas.abbreviation.tray.TrayManager;
 import me.niklas.abbreviation.util.VersionInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
 import static me.niklas.abbreviation.enums.EventType.*;
 
 public class Main {
@@ -28,17 +39,66 @@ public class Main {
         CombinationManager combinations = new CombinationManager(events);
         InputProcessor processor = new InputProcessor(events);
         GamepadInputReceiver input = new GamepadInputReceiver(events);
+        input.bindChord(GamepadInput.CANCEL, GamepadInput.LT, GamepadInput.RT); //Chord buttons are held back, keep START and BACK instant
+        input.bindChord(GamepadInput.PIPE, GamepadInput.LS_PRESS, GamepadInput.RS_PRESS);
         TrayManager tray = new TrayManager(events);
+        Metrics metrics = Metrics.get();
+        metrics.start();
 
         logger.debug("Registering event subscribers");
 
-        events.subscribeFor(combinations, EDIT_COMBINATION, RUN_COMBINATION, RELOAD, SHOW_PREVIEW);
+        events.subscribeFor(combinations, EDIT_COMBINATION, RUN_COMBINATION, RELOAD, SHOW_PREVIEW, COMBINATION_CHANGED,
+                CANCEL_EXECUTION);
         events.subscribeFor(processor, TYPED);
         events.subscribeFor(tray, SHOW_MESSAGE);
         events.subscribeFor(input);
+        events.subscribeFor(metrics);
+
+        Integer port = Integer.getInteger("abbreviation.remote.port");
+        if (port != null) {
+            RemoteServer remote = new RemoteServer(events);
+            try {
+                remote.start(port);
+                events.subscribeFor(remote);
+            } catch (IOException e) {
+                logger.error("Could not start the remote server: " + e.getMessage());
+            }
+        }
 
+        String record = System.getProperty("abbreviation.trace.record");
+        if (record != null) {
+            try {
+                events.subscribeFor(new TraceRecorder(new FileOutputStream(record)), TYPED, RELEASED);
+            } catch (IOException e) {
+                logger.error("Could not record the trace: " + e.getMessage());
+            }
+        }
+
+        CompletableFuture<Void> reloaded = combinations.getNextReload();
         logger.debug("Initiating RELOAD");
         events.fire(RELOAD, String.join(" ", args).trim());
+
+        String replay = System.getProperty("abbreviation.trace.replay");
+        if (replay != null) {
+            try (InputStream in = new FileInputStream(replay)) {
+                TraceReplayer trace = new TraceReplayer(in);
+                double speed = Double.parseDouble(System.getProperty("abbreviation.trace.speed", "1"));
+                Thread thread = new Thread(() -> {
+                    try {
+                        //Errors while loading are logged by the CombinationManager
+                        reloaded.thenCompose(result -> combinations.getLoading()).exceptionally(error -> null).join();
+                        trace.replay(events, speed);
+                        logger.info("Replayed " + trace.size() + " events");
+                    } catch (InterruptedException e) {
+                        logger.debug("Replay interrupted");
+                    }
+                }, "TraceReplay");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException | NumberFormatException e) {
+                logger.error("Could not replay the trace: " + e.getMessage());
+            }
+        }
     }
 
     public static void main(String[] args) {
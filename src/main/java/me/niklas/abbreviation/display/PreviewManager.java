@@ -1,111 +1,175 @@
 package me.niklas.abbreviation.display;
 
 import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.enums.Stage;
+import me.niklas.abbreviation.metrics.Metrics;
 import me.niklas.abbreviation.util.Combination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Created by Niklas on 14.10.2018 in abbreviation
+ * <p>
+ * Uses a single preview window which is updated in place on the event dispatch thread.
+ * Previews requested within one frame ({@link #FRAME_MILLIS}) are merged, only the latest one is rendered.
+ * Every controller has its own preview window, they are placed next to each other.
  */
 public class PreviewManager {
 
-    private static int INSTANCE = 0;
+    private static final int FRAME_MILLIS = 16;
+    private static final int DISPLAY_MILLIS = 10000;
+    private static final int MIN_SIZE = 200;
 
     private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicReference<Frame> pending = new AtomicReference<>();
+    private final Timer frameTimer = new Timer(FRAME_MILLIS, event -> render());
+    private final Timer hideTimer = new Timer(DISPLAY_MILLIS, event -> hide());
+    private final List<JLabel> labels = new ArrayList<>();
+    private final int controller;
+    private volatile boolean shutdown = false;
+    private JDialog dialog;
+    private JPanel panel;
+
+    public PreviewManager() {
+        this(0);
+    }
 
     /**
-     * Shows a preview in the lower right corner of the screen.
+     * @param controller The index of the controller whose input is previewed. Determines the position of the window.
+     */
+    public PreviewManager(int controller) {
+        this.controller = controller;
+        frameTimer.setRepeats(false);
+        hideTimer.setRepeats(false);
+    }
+
+    /**
+     * Shows a preview in the lower right corner of the screen. The preview is rendered at the end of the current frame,
+     * unless it is replaced by a newer one until then. It is hidden after 10 seconds.
      *
      * @param possible      The possible Combination which could be displayed by the current input. null if there is no match.
      * @param current       The current input list.
      * @param possibilities All sub-combinations possible (limited to 5 possibilities).
      */
     public void showPreview(Combination possible, GamepadInput[] current, List<Combination> possibilities) {
-        if (executor.isShutdown()) return;
-        INSTANCE = Arrays.hashCode(current); //Set instance
-
-        executor.submit(() -> {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-
-            //Inputs + (if present) the name of the possible result.
-            String tile = possible != null ? GamepadInput.toReadable(current) + ": " + possible.getName() : GamepadInput.toReadable(current);
-
-            //Set up dialog
-            JDialog dialog = new JDialog();
-            dialog.setAlwaysOnTop(true);
-            dialog.setUndecorated(true);
-
-            //Set up panel (vertical layout) and title label
-            final JPanel panel = new JPanel();
-            panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-            final JLabel label = new JLabel(tile);
+        if (shutdown) return;
+
+        //Inputs + (if present) the name of the possible result.
+        String title = possible != null ? GamepadInput.toReadable(current) + ": " + possible.getName() : GamepadInput.toReadable(current);
+        if (controller > 0) title = "Controller " + (controller + 1) + " - " + title;
+        String[] lines = new String[possibilities.size()];
+        for (int i = 0; i < lines.length; i++) {
+            Combination p = possibilities.get(i);
+            lines[i] = p.getMissingPart(current) + ": " + p.getName();
+        }
+
+        if (pending.getAndSet(new Frame(title, lines)) == null) { //First preview of this frame
+            SwingUtilities.invokeLater(frameTimer::restart);
+        }
+    }
+
+    /**
+     * Renders the latest requested preview. Runs on the event dispatch thread.
+     */
+    private void render() {
+        Frame frame = pending.getAndSet(null);
+        if (frame == null || shutdown) return;
+        if (GraphicsEnvironment.isHeadless()) {
+            logger.debug("Preview: " + frame.title);
+            return;
+        }
+        if (dialog == null) createDialog();
+
+        //One label for the title, one for every possibility. Unused labels are hidden.
+        while (labels.size() < frame.lines.length + 1) {
+            JLabel label = new JLabel();
+            labels.add(label);
             panel.add(label);
+        }
+        for (int i = 0; i < labels.size(); i++) {
+            JLabel label = labels.get(i);
+            label.setVisible(i <= frame.lines.length);
+            if (i <= frame.lines.length) label.setText(i == 0 ? frame.title : frame.lines[i - 1]);
+        }
 
-            //Add all possibilities
-            for (Combination p : possibilities) {
-                panel.add(new JLabel(p.getMissingPart(current) + ": " + p.getName()));
-            }
-
-            //Set background color to white + pack
-            dialog.setBackground(new Color(255, 255, 255, 255));
-            dialog.add(panel, BorderLayout.CENTER);
-            dialog.pack();
-
-            //Show in lower right corner
-            Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
-            dialog.setLocation(screen.width - dialog.getWidth(), screen.height - dialog.getHeight());
-
-            //Set minimum size: 200x200
-            if (dialog.getWidth() < 200) {
-                dialog.setSize(200, dialog.getHeight());
-            }
-            if (dialog.getHeight() < 200) {
-                dialog.setSize(dialog.getWidth(), 200);
-            }
-
-            //Show dialog
-            dialog.setVisible(true);
-
-            //Close when other window opened or shown for 10 seconds
-            while (true) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    logger.debug("Sleep interrupted.");
-                }
-                if (INSTANCE != Arrays.hashCode(current)) { //New Preview
-                    dialog.dispose();
-                    return;
-                }
-            }
-        });
+        dialog.pack();
+
+        //Set minimum size: 200x200
+        dialog.setSize(Math.max(dialog.getWidth(), MIN_SIZE), Math.max(dialog.getHeight(), MIN_SIZE));
+
+        //Show in lower right corner, windows of further controllers to the left of it
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        dialog.setLocation(screen.width - dialog.getWidth() * (controller + 1), screen.height - dialog.getHeight());
+
+        if (!dialog.isVisible()) dialog.setVisible(true);
+        hideTimer.restart();
+        Metrics.record(Stage.PREVIEW_RENDER, System.nanoTime() - frame.requested);
+    }
+
+    /**
+     * Creates the preview window. Runs on the event dispatch thread.
+     */
+    private void createDialog() {
+        dialog = new JDialog();
+        dialog.setAlwaysOnTop(true);
+        dialog.setUndecorated(true);
+
+        //Set up panel (vertical layout)
+        panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+
+        //Set background color to white
+        dialog.setBackground(new Color(255, 255, 255, 255));
+        dialog.add(panel, BorderLayout.CENTER);
+    }
+
+    /**
+     * Hides the preview window. Runs on the event dispatch thread.
+     */
+    private void hide() {
+        frameTimer.stop();
+        hideTimer.stop();
+        if (dialog != null) dialog.setVisible(false);
     }
 
     /**
      * Closes the current preview.
      */
     public void closePreview() {
-        INSTANCE = 0;
+        pending.set(null);
+        SwingUtilities.invokeLater(this::hide);
     }
 
     /**
      * Terminates the preview. This action is NOT REVERSIBLE.
      */
     public void shutdown() {
-        closePreview();
-        executor.shutdown();
+        shutdown = true;
+        pending.set(null);
+        SwingUtilities.invokeLater(() -> {
+            hide();
+            if (dialog != null) dialog.dispose();
+        });
+    }
+
+    /**
+     * A requested preview.
+     */
+    private static class Frame {
+
+        private final String title;
+        private final String[] lines;
+        private final long requested = System.nanoTime();
+
+        private Frame(String title, String[] lines) {
+            this.title = title;
+            this.lines = lines;
+        }
     }
 }
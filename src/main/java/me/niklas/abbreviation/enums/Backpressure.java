@@ -0,0 +1,18 @@
+package me.niklas.abbreviation.enums;
+
+/**
+ * What the {@link me.niklas.abbreviation.events.EventManager} does when an event is fired while the queue of a
+ * subscriber is full.
+ */
+public enum Backpressure {
+
+    /**
+     * The firing thread waits until the subscriber has handled enough events. No event is lost.
+     */
+    BLOCK,
+    /**
+     * The oldest queued event with this policy is discarded. If there is none, the new event is discarded.
+     * Useful for events which are outdated by newer ones, like previews.
+     */
+    DROP_OLDEST
+}
@@ -6,11 +6,13 @@ package me.niklas.abbreviation.enums;
 public enum EventType {
 
     /**
-     * Param: Array of type {@link me.niklas.abbreviation.enums.GamepadInput} (typed keys)
+     * Param: {@link me.niklas.abbreviation.util.InputSequence} (typed keys of a controller) or
+     * array of type {@link me.niklas.abbreviation.enums.GamepadInput} (typed keys of the first controller)
      */
     EDIT_COMBINATION,
     /**
-     * Param: Array of type {@link me.niklas.abbreviation.enums.GamepadInput} (typed keys)
+     * Param: {@link me.niklas.abbreviation.util.InputSequence} (typed keys of a controller) or
+     * array of type {@link me.niklas.abbreviation.enums.GamepadInput} (typed keys of the first controller)
      */
     RUN_COMBINATION,
     /**
@@ -18,15 +20,34 @@ public enum EventType {
      */
     RELOAD,
     /**
-     * Param: {@link me.niklas.abbreviation.enums.GamepadInput} (typed key)
+     * Param: {@link me.niklas.abbreviation.util.ControllerInput} (typed key of a controller) or
+     * {@link me.niklas.abbreviation.enums.GamepadInput} (typed key of the first controller)
      */
     TYPED,
     /**
-     * Param: {@link me.niklas.abbreviation.enums.GamepadInput} (currently typed keys)
+     * Param: {@link me.niklas.abbreviation.util.ControllerInput} (released key of a controller)
+     */
+    RELEASED,
+    /**
+     * Param: {@link me.niklas.abbreviation.util.InputSequence} (currently typed keys of a controller) or
+     * array of type {@link me.niklas.abbreviation.enums.GamepadInput} (currently typed keys of the first controller)
      */
     SHOW_PREVIEW,
     /**
      * Param: {@link String} (message)
      */
     SHOW_MESSAGE,
+    /**
+     * Param: {@link java.io.File} (created, modified or deleted combination file)
+     */
+    COMBINATION_CHANGED,
+    /**
+     * Param: {@link Integer} (index of the controller whose running combinations are cancelled) or
+     * {@code null} (cancels the running combinations of all controllers)
+     */
+    CANCEL_EXECUTION,
+    /**
+     * Param: {@link me.niklas.abbreviation.input.Execution} (started or finished run script)
+     */
+    EXECUTION_STATUS,
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package me.niklas.abbreviation.enums;
+
+/**
+ * The state of a running or finished {@link me.niklas.abbreviation.input.Execution}.
+ */
+public enum ExecutionStatus {
+
+    /**
+     * The run script has been submitted and has not finished yet.
+     */
+    RUNNING,
+    /**
+     * The run script returned normally.
+     */
+    COMPLETED,
+    /**
+     * The run script could not be parsed or threw an exception.
+     */
+    FAILED,
+    /**
+     * The run script did not finish within the timeout and has been interrupted.
+     */
+    TIMED_OUT,
+    /**
+     * The run script has been cancelled (e.g. by the cancel chord) and has been interrupted.
+     */
+    CANCELLED;
+
+    /**
+     * @return Whether the execution has finished, successfully or not.
+     */
+    public boolean isDone() {
+        return this != RUNNING;
+    }
+}
@@ -29,7 +29,11 @@ public enum GamepadInput {
     RS_UP,         //Right Stick Up
     RS_RIGHT,   //Right Stick Right
     LS_PRESS,   //Left Stick Press 
-    RS_PRESS;   //Right Stick Press 
+    RS_PRESS,   //Right Stick Press 
+    CANCEL,       //Not a button, typed by the chord which cancels running combinations
+    PIPE;           //Not a button, typed by the chord which separates the stages of a pipeline
+
+    private static final GamepadInput[] VALUES = values();
 
     /**
      * Converts an {@code array} into another array of GamepadInputs according to the {@code index}.
@@ -69,8 +73,8 @@ public enum GamepadInput {
      * @return The GamepadInput.
      */
     public static GamepadInput valueOf(int index) {
-        if (index < 0 || index > GamepadInput.values().length) return NONE;
-        return GamepadInput.values()[index];
+        if (index < 0 || index >= VALUES.length) return NONE;
+        return VALUES[index];
     }
 
 }
@@ -0,0 +1,46 @@
+package me.niklas.abbreviation.enums;
+
+/**
+ * The stages between pressing a button and seeing the result, measured by {@link me.niklas.abbreviation.metrics.Metrics}.
+ */
+public enum Stage {
+
+    /**
+     * From polling an input until the input processor has added it to the typed ones.
+     */
+    POLL_TO_TYPED,
+    /**
+     * From polling an input until the preview of the typed inputs has been requested.
+     */
+    POLL_TO_PREVIEW,
+    /**
+     * From requesting a preview until the preview window has been updated.
+     */
+    PREVIEW_RENDER,
+    /**
+     * Looking up a combination and its completions in the index.
+     */
+    LOOKUP,
+    /**
+     * Running the run script of a combination.
+     */
+    SCRIPT_EVAL,
+    /**
+     * From firing {@link EventType#SHOW_MESSAGE} until the message has been displayed.
+     */
+    MESSAGE_DISPLAY;
+
+    /**
+     * @param type An {@link EventType}.
+     * @return The stage measured from firing an event of this type until it has been handled, or {@code null}.
+     * Stages which start at the poll are measured by the subscribers themselves.
+     */
+    public static Stage forEvent(EventType type) {
+        switch (type) {
+            case SHOW_MESSAGE:
+                return MESSAGE_DISPLAY;
+            default:
+                return null;
+        }
+    }
+}
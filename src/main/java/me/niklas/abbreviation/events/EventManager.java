@@ -1,24 +1,71 @@
 package me.niklas.abbreviation.events;
 
+import me.niklas.abbreviation.enums.Backpressure;
 import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.metrics.Metrics;
+import me.niklas.abbreviation.util.InputSequence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by Niklas on 24.02.2019 in abbreviation
+ * <p>
+ * Every subscriber owns a bounded queue which is drained by at most one thread at a time, so each subscriber
+ * receives its events one after another in the order they were fired. Firing does not lock: the routing table
+ * is replaced (copy-on-write) whenever somebody subscribes or unsubscribes.
+ * <p>
+ * Events of a coalescing type (by default {@link EventType#SHOW_PREVIEW}) are skipped if the next queued event of
+ * the subscriber has the same type and comes from the same controller, because it supersedes them.
  */
 public class EventManager {
 
+    /**
+     * The default amount of events which can be queued per subscriber.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final Mailbox[] NO_MAILBOXES = new Mailbox[0];
+
     private final Logger logger = LoggerFactory.getLogger("EventManager");
-    private final Map<EventSubscriber, List<EventType>> subscribers = new HashMap<>();
+    private final Map<EventSubscriber, Mailbox> subscribers = new LinkedHashMap<>();
     private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final int capacity;
+    private volatile EnumMap<EventType, Mailbox[]> routes = new EnumMap<>(EventType.class);
+    private volatile EnumMap<EventType, Backpressure> policies = new EnumMap<>(EventType.class);
+    private volatile EnumSet<EventType> coalescing = EnumSet.of(EventType.SHOW_PREVIEW);
+
+    public EventManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The amount of events which can be queued per subscriber.
+     */
+    public EventManager(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity has to be positive");
+        this.capacity = capacity;
+
+        for (EventType type : EventType.values()) {
+            policies.put(type, Backpressure.BLOCK);
+        }
+        policies.put(EventType.SHOW_PREVIEW, Backpressure.DROP_OLDEST);
+    }
 
     /**
      * Makes an {@link EventSubscriber} subscribe to <u>all</u> events. Use {@link #subscribeFor(EventSubscriber, EventType...)}
@@ -27,7 +74,7 @@ public class EventManager {
      * @param subscriber A class implementing the {@link EventSubscriber} interface.
      */
     public void subscribe(EventSubscriber subscriber) {
-        subscribers.put(subscriber, Arrays.asList(EventType.values()));
+        update(subscriber, Arrays.asList(EventType.values()));
         logger.debug(subscriber.getClass().getSimpleName() + " subscribed");
     }
 
@@ -38,32 +85,112 @@ public class EventManager {
      * @param events     All events of a specific {@link EventType} you want to listen for. Specify no events to only catch the onExit() event.
      */
     public void subscribeFor(EventSubscriber subscriber, EventType... events) {
-        subscribers.put(subscriber, Arrays.asList(events));
+        update(subscriber, Arrays.asList(events));
         logger.debug(subscriber.getClass().getSimpleName() + " subscribed for " + Arrays.toString(events));
     }
 
     /**
      * Makes an {@link EventSubscriber} unsubscribe from <u>all</u> events. The onExit() routine will neither be executed.
+     * Events which are still queued for the subscriber are discarded.
      *
      * @param subscriber A class implementing the {@link EventSubscriber} interface.
      */
     public void unsubscribe(EventSubscriber subscriber) {
-        subscribers.remove(subscriber);
+        synchronized (subscribers) {
+            Mailbox mailbox = subscribers.remove(subscriber);
+            if (mailbox != null) mailbox.closed = true;
+            rebuildRoutes();
+        }
         logger.debug(subscriber.getClass().getSimpleName() + " unsubscribed");
     }
 
+    /**
+     * Sets the {@link Backpressure} policy for an {@link EventType}. By default, {@link EventType#SHOW_PREVIEW} uses
+     * {@link Backpressure#DROP_OLDEST}, every other type uses {@link Backpressure#BLOCK}.
+     *
+     * @param type   The {@link EventType}.
+     * @param policy The {@link Backpressure} policy used when a subscriber's queue is full.
+     */
+    public void setBackpressure(EventType type, Backpressure policy) {
+        synchronized (subscribers) {
+            EnumMap<EventType, Backpressure> copy = new EnumMap<>(policies);
+            copy.put(type, policy);
+            policies = copy;
+        }
+    }
+
+    /**
+     * Sets whether events of an {@link EventType} are coalesced: a queued event is skipped if it is directly followed
+     * by another event of the same type. Only use this for events which carry the complete state.
+     *
+     * @param type     The {@link EventType}.
+     * @param coalesce Whether to coalesce the events.
+     */
+    public void setCoalescing(EventType type, boolean coalesce) {
+        synchronized (subscribers) {
+            EnumSet<EventType> copy = EnumSet.copyOf(coalescing);
+            if (coalesce) copy.add(type);
+            else copy.remove(type);
+            coalescing = copy;
+        }
+    }
+
+    /**
+     * Adds or updates a subscriber and rebuilds the routing table.
+     *
+     * @param subscriber The {@link EventSubscriber}.
+     * @param types      The {@link EventType}s the subscriber listens for.
+     */
+    private void update(EventSubscriber subscriber, List<EventType> types) {
+        synchronized (subscribers) {
+            subscribers.computeIfAbsent(subscriber, Mailbox::new).types = types;
+            rebuildRoutes();
+        }
+    }
+
+    /**
+     * Creates a new routing table from {@link #subscribers}. The order of subscription is kept.
+     */
+    private void rebuildRoutes() {
+        EnumMap<EventType, Mailbox[]> table = new EnumMap<>(EventType.class);
+        for (EventType type : EventType.values()) {
+            List<Mailbox> targets = new ArrayList<>();
+            for (Mailbox mailbox : subscribers.values()) {
+                if (mailbox.types.contains(type)) targets.add(mailbox);
+            }
+            table.put(type, targets.toArray(NO_MAILBOXES));
+        }
+        routes = table;
+    }
+
     /**
      * Fires an event of a specific {@link EventType}. All subscribers which are listening for this {@link EventType}
-     * will be called. Runs {@code asynchronously}.
+     * will be called. Runs {@code asynchronously}, but every subscriber receives its events in the order they were fired.
      *
      * @param type  The {@link EventType} of the event. Specifies what should be done/has been done.
      * @param param The parameter. Can be of any type, casting happens at the {@link EventSubscriber}'s side.
      */
     public void fire(EventType type, Object param) {
-        logger.debug("Firing " + type.name());
-        executor.submit(() -> subscribers.forEach((subscriber, types) -> {
-            if (types.contains(type)) subscriber.onEvent(type, param);
-        }));
+        fire(type, param, System.nanoTime());
+    }
+
+    /**
+     * Fires an event like {@link #fire(EventType, Object)}, passing an earlier time to the subscribers, e.g. the time
+     * the input which caused the event has been polled.
+     *
+     * @param type  The {@link EventType} of the event.
+     * @param param The parameter.
+     * @param fired The time to pass as {@link System#nanoTime()}.
+     */
+    public void fire(EventType type, Object param, long fired) {
+        Mailbox[] targets = routes.get(type);
+        if (targets == null || targets.length == 0) return; //Nobody listens, e.g. for RELEASED or before subscribing
+
+        logger.debug("Firing {}", type);
+        Event event = new Event(type, param, policies.get(type), coalescing.contains(type), fired);
+        for (Mailbox mailbox : targets) {
+            mailbox.offer(event);
+        }
     }
 
     /**
@@ -73,7 +200,155 @@ public class EventManager {
      */
     public void performExit() {
         logger.info("Performing global exit...");
-        subscribers.forEach(((subscriber, types) -> subscriber.onExit()));
+        List<EventSubscriber> all;
+        synchronized (subscribers) {
+            all = new ArrayList<>(subscribers.keySet());
+        }
+        all.forEach(EventSubscriber::onExit);
         executor.shutdownNow();
     }
+
+    /**
+     * A fired event. Shared by all mailboxes it is delivered to.
+     */
+    private static final class Event {
+
+        private final EventType type;
+        private final Object param;
+        private final Backpressure policy;
+        private final boolean coalesce;
+        private final long fired;
+
+        private Event(EventType type, Object param, Backpressure policy, boolean coalesce, long fired) {
+            this.type = type;
+            this.param = param;
+            this.policy = policy;
+            this.coalesce = coalesce;
+            this.fired = fired;
+        }
+    }
+
+    /**
+     * The queue of a single subscriber. Any thread may add events, only one thread at a time delivers them.
+     */
+    private final class Mailbox implements Runnable {
+
+        private final EventSubscriber subscriber;
+        private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+        private final Semaphore space = new Semaphore(capacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final AtomicInteger overflow = new AtomicInteger(0); //Queued events which did not take any space
+        private volatile List<EventType> types;
+        private volatile boolean closed = false;
+        private volatile Thread consumer;
+
+        private Mailbox(EventSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Queues an event, applying its {@link Backpressure} policy if the queue is full.
+         *
+         * @param event The {@link Event}.
+         */
+        private void offer(Event event) {
+            if (closed) return;
+            if (!space.tryAcquire()) {
+                if (Thread.currentThread() == consumer) {
+                    //The subscriber fires an event to itself, waiting would never end. Exceed the capacity instead.
+                    overflow.incrementAndGet();
+                } else if (event.policy == Backpressure.BLOCK) {
+                    try {
+                        space.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        logger.warn("Interrupted while waiting, discarding " + event.type.name());
+                        return;
+                    }
+                } else if (!dropOldest()) {
+                    logger.debug("Queue of " + subscriber.getClass().getSimpleName() + " is full, discarding " + event.type.name());
+                    return;
+                }
+            }
+            queue.add(event);
+            schedule();
+        }
+
+        /**
+         * Removes the oldest queued event using {@link Backpressure#DROP_OLDEST}. Its space is taken over by the caller.
+         *
+         * @return Whether an event was removed.
+         */
+        private boolean dropOldest() {
+            Iterator<Event> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Event queued = iterator.next();
+                if (queued.policy == Backpressure.DROP_OLDEST && queue.remove(queued)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Makes sure a thread is delivering the queued events.
+         */
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Not delivering events, shutting down");
+            }
+        }
+
+        /**
+         * @param event An event which has just been taken from the queue.
+         * @return Whether the next queued event has the same type and belongs to the same controller.
+         */
+        private boolean isSuperseded(Event event) {
+            Event next = queue.peek();
+            return next != null && next.type == event.type && getController(next.param) == getController(event.param);
+        }
+
+        /**
+         * @param param The param of an event.
+         * @return The index of the controller an {@link InputSequence} belongs to, 0 for any other param.
+         */
+        private int getController(Object param) {
+            return param instanceof InputSequence ? ((InputSequence) param).getController() : 0;
+        }
+
+        /**
+         * Frees the space of a taken event. While events exceed the capacity, no space is freed, so the queue
+         * shrinks back to its capacity first.
+         */
+        private void releaseSpace() {
+            if (overflow.getAndUpdate(count -> count > 0 ? count - 1 : 0) == 0) space.release();
+        }
+
+        /**
+         * Delivers all queued events.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                consumer = Thread.currentThread();
+                Event event;
+                while ((event = queue.poll()) != null) {
+                    releaseSpace();
+                    if (closed || event.coalesce && isSuperseded(event)) continue;
+                    try {
+                        subscriber.onEvent(event.type, event.param, event.fired);
+                        Metrics.record(event.type, System.nanoTime() - event.fired);
+                    } catch (Exception e) {
+                        logger.error("An error occurred while handling " + event.type.name() + ": ", e);
+                    }
+                }
+                consumer = null;
+                scheduled.set(false);
+
+                //Another thread may have added an event after the queue was found empty
+                if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) return;
+            }
+        }
+    }
 }
@@ -15,6 +15,18 @@ public interface EventSubscriber {
      */
     void onEvent(EventType type, Object param);
 
+    /**
+     * Fired by the {@link EventManager}. Implement it instead of {@link #onEvent(EventType, Object)} to know when
+     * the event has been fired, e.g. to measure latencies.
+     *
+     * @param type  The {@link EventType} of the event.
+     * @param param A parameter of any type.
+     * @param fired The time the event, or the input it was caused by, has been fired ({@link System#nanoTime()}).
+     */
+    default void onEvent(EventType type, Object param, long fired) {
+        onEvent(type, param);
+    }
+
 
     /**
      * Fired by the {@link EventManager}.
@@ -0,0 +1,113 @@
+package me.niklas.abbreviation.events;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.util.ControllerInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the {@link EventType#TYPED} and {@link EventType#RELEASED} events it receives to a trace, which can be
+ * fired again by a {@link TraceReplayer}. Together they describe the state of every controller over time.
+ * <p>
+ * The trace starts with {@link #MAGIC} and {@link #VERSION}. Every event takes three bytes in most cases:
+ * the type in the highest bit and the ordinal of the input in the lower seven bits, then the controller and the
+ * microseconds since the previous event, both as variable length numbers (seven bits per byte).
+ */
+public class TraceRecorder implements EventSubscriber, Closeable {
+
+    static final int MAGIC = 0x41425452; //"ABTR"
+    static final int VERSION = 1;
+    static final int RELEASED_FLAG = 0x80;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final DataOutputStream out;
+    private long last = 0;
+    private int count = 0;
+    private boolean closed = false;
+
+    /**
+     * @param out The stream the trace is written to. Closed by {@link #close()}.
+     * @throws IOException If the header can not be written.
+     */
+    public TraceRecorder(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    @Override
+    public void onEvent(EventType type, Object param) {
+        onEvent(type, param, System.nanoTime());
+    }
+
+    /**
+     * Records an event at the time it has been fired, i.e. polled, so delays of the delivery are not recorded.
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void onEvent(EventType type, Object param, long fired) {
+        if (closed || (type != EventType.TYPED && type != EventType.RELEASED)) return;
+        if (!(param instanceof ControllerInput)) {
+            logger.error("Invalid param at " + type.name());
+            return;
+        }
+
+        ControllerInput input = (ControllerInput) param;
+        long delta = count == 0 ? 0 : Math.max(0, fired - last) / 1000; //Other threads may fire slightly out of order
+        if (count == 0 || fired > last) last = fired;
+        try {
+            out.writeByte((type == EventType.RELEASED ? RELEASED_FLAG : 0) | input.getInput().ordinal());
+            writeNumber(input.getController());
+            writeNumber(delta);
+            count++;
+        } catch (IOException e) {
+            logger.error("Could not write the trace: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Writes a positive number, seven bits per byte. The highest bit marks that another byte follows.
+     *
+     * @param value The number.
+     */
+    private void writeNumber(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * @return The amount of recorded events.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Flushes and closes the trace. Further events are ignored.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.error("Could not close the trace: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onExit() {
+        close();
+    }
+}
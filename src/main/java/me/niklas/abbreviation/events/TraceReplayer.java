@@ -0,0 +1,118 @@
+package me.niklas.abbreviation.events;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.util.ControllerInput;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fires the events of a trace written by a {@link TraceRecorder}. The trace is read completely before it is
+ * replayed, so reading does not affect the timing. Every event is fired at its offset from the start of the
+ * replay (divided by the speed), delays of the firing thread therefore do not add up.
+ */
+public class TraceReplayer {
+
+    private static final GamepadInput[] INPUTS = GamepadInput.values();
+
+    private final EventType[] types;
+    private final ControllerInput[] inputs;
+    private final long[] offsets;
+
+    /**
+     * Reads a trace.
+     *
+     * @param in The stream of the trace. Not closed.
+     * @throws IOException If the trace can not be read or is invalid.
+     */
+    public TraceReplayer(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != TraceRecorder.MAGIC) throw new IOException("Not a trace");
+        int version = data.readUnsignedByte();
+        if (version != TraceRecorder.VERSION) throw new IOException("Unsupported trace version: " + version);
+
+        EventType[] types = new EventType[64];
+        ControllerInput[] inputs = new ControllerInput[64];
+        long[] offsets = new long[64];
+        int count = 0;
+        long offset = 0;
+        int header;
+        while ((header = data.read()) >= 0) {
+            int ordinal = header & ~TraceRecorder.RELEASED_FLAG;
+            if (ordinal >= INPUTS.length) throw new IOException("Invalid input at event " + count);
+            int controller = (int) readNumber(data);
+            offset += readNumber(data) * 1000;
+
+            if (count == offsets.length) {
+                types = Arrays.copyOf(types, count * 2);
+                inputs = Arrays.copyOf(inputs, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            types[count] = (header & TraceRecorder.RELEASED_FLAG) != 0 ? EventType.RELEASED : EventType.TYPED;
+            inputs[count] = ControllerInput.of(controller, INPUTS[ordinal]);
+            offsets[count] = offset;
+            count++;
+        }
+
+        this.types = Arrays.copyOf(types, count);
+        this.inputs = Arrays.copyOf(inputs, count);
+        this.offsets = Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * Reads a number written by {@link TraceRecorder}.
+     */
+    private static long readNumber(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.read();
+            if (b < 0) throw new EOFException("The trace ends within an event");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Invalid number");
+    }
+
+    /**
+     * Fires all events of the trace on the calling thread. Can be called several times.
+     *
+     * @param events The {@link EventManager} the events are fired at.
+     * @param speed  The speed relative to the recording, e.g. 2 for twice as fast. 0 or less fires all events
+     *               without waiting.
+     * @throws InterruptedException If the thread is interrupted while waiting for the next event.
+     */
+    public void replay(EventManager events, double speed) throws InterruptedException {
+        long start = System.nanoTime();
+        for (int i = 0; i < types.length; i++) {
+            if (speed > 0) {
+                long due = start + (long) (offsets[i] / speed);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) throw new InterruptedException("Interrupted while replaying");
+                }
+            }
+            events.fire(types[i], inputs[i]);
+        }
+    }
+
+    /**
+     * @return The amount of events in the trace.
+     */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * @return The time between the first and the last event of the trace in nanoseconds.
+     */
+    public long getDuration() {
+        return offsets.length > 0 ? offsets[offsets.length - 1] : 0;
+    }
+}
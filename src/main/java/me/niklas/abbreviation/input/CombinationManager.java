@@ -1,13 +1,19 @@
 package me.niklas.abbreviation.input;
 
 import bsh.EvalError;
-import bsh.Interpreter;
 import me.niklas.abbreviation.display.PreviewManager;
 import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.ExecutionStatus;
 import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.enums.Stage;
 import me.niklas.abbreviation.events.EventManager;
 import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.metrics.Metrics;
 import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.CombinationIndex;
+import me.niklas.abbreviation.util.InputKey;
+import me.niklas.abbreviation.util.InputSequence;
+import me.niklas.abbreviation.util.InterpreterPool;
 import me.niklas.abbreviation.util.UtilMethods;
 import me.niklas.abbreviation.util.VersionInfo;
 import org.slf4j.Logger;
@@ -18,39 +24,76 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Created by Niklas on 13.10.2018 in abbreviation
  */
 public class CombinationManager implements EventSubscriber {
 
-    private final List<Combination> combinations = new ArrayList<>();
-    private final Interpreter interpreter;
+
+    private final UsageRanking ranking = new UsageRanking();
+    private final CombinationIndex combinations = new CombinationIndex(ranking::getRank);
+    private final InterpreterPool interpreters;
+    private final ScriptCache scripts;
+    private final ScriptExecutor executor;
+    private final ScriptCompiler compiler;
     private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
-    private final PreviewManager preview = new PreviewManager();
+    private final List<PreviewContext> previews = new CopyOnWriteArrayList<>();
+    private final CombinationWatcher watcher;
     private final UtilMethods util;
     private final String defaultCode;
+    private final ExecutorService loader;
     private File directory;
+    private final CombinationSnapshot snapshot = new CombinationSnapshot();
+    private boolean lazyLoading = true;
+    private boolean useSnapshot = true;
+    private volatile boolean snapshotOutdated = false;
+    private final AtomicBoolean rankingPending = new AtomicBoolean(false);
+    private volatile CompletableFuture<Void> loading = CompletableFuture.completedFuture(null);
+    private final AtomicReference<CompletableFuture<Void>> nextReload = new AtomicReference<>(new CompletableFuture<>());
 
     /**
      * @param events The {@link EventManager} used to make combinations able to fire events.
      */
     public CombinationManager(EventManager events) {
+        this(events, Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * @param events The {@link EventManager} used to make combinations able to fire events.
+     * @param loader The executor reading the files of lazily registered combinations. Shut down on exit.
+     */
+    CombinationManager(EventManager events, ExecutorService loader) {
+        this.loader = loader;
         this.util = new UtilMethods(events);
-        this.interpreter = new Interpreter();
+        this.watcher = new CombinationWatcher(events);
 
         defaultCode = "import me.niklas.abbreviation.enums.*;\n";
 
-        try {
-            interpreter.set("Logger", logger);
-            interpreter.set("Utils", util);
-            interpreter.set("VersionInfo", new VersionInfo());
-            interpreter.set("Combinations", this);
-            interpreter.set("EventManager", events);
-        } catch (EvalError e) {
-            logger.error("An error occurred while setting up the interpreter variables: ", e);
-        }
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        bindings.put("Logger", logger);
+        bindings.put("Utils", util);
+        bindings.put("VersionInfo", new VersionInfo());
+        bindings.put("Combinations", this);
+        bindings.put("EventManager", events);
+        int processors = Runtime.getRuntime().availableProcessors();
+        interpreters = new InterpreterPool(bindings, defaultCode, 2, Math.max(2, processors));
+        InterpreterPool.setShared(interpreters); //Init scripts and Utils.executeJava use the same bindings
+        scripts = new ScriptCache(interpreters, defaultCode);
+        compiler = new ScriptCompiler(bindings, defaultCode);
+        if (Boolean.getBoolean("abbreviation.script.compile")) scripts.setCompiler(compiler);
+        executor = new ScriptExecutor(events, this::finished, interpreters);
     }
 
     /**
@@ -65,13 +108,9 @@ public class CombinationManager implements EventSubscriber {
             return;
         }
 
-        GamepadInput[] indices = combination.getIndices();
-
-        if (combinations.stream().anyMatch(c -> c.hasSameInput(indices))) {
-            logger.warn("Combination with same input, not adding it to list: " + Arrays.toString(indices));
-            return;
+        if (!combinations.add(combination)) {
+            logger.warn("Combination with same input, not adding it to list: " + Arrays.toString(combination.getIndices()));
         }
-        combinations.add(combination);
     }
 
     /**
@@ -81,28 +120,95 @@ public class CombinationManager implements EventSubscriber {
      */
     private void register(File file) {
         Combination c = new Combination(file);
-        if (c.isEmptyCombination()) { //Delete empty combination file
-            logger.info("Removing empty combination " + file.getName());
-            try {
-                logger.debug("Successfully deleted file?: " + file.delete());
-            } catch (Exception e) {
-                logger.error("Can not delete file:", e);
-            }
+        if (c.isEmptyCombination()) {
+            delete(file);
             return;
         }
 
         register(c);
     }
 
+    /**
+     * Registers a new {@link Combination} by reading its input from the name of a {@link File}.
+     * The file itself is read later using {@link #load(Combination)}.
+     *
+     * @param file    The {@link File}.
+     * @param pending The list the registered combination is added to.
+     */
+    private void registerLazy(File file, List<Combination> pending) {
+        Combination c = new Combination(file, true);
+        if (c.isLoaded() && c.isInvalid()) { //The file name could not be read
+            logger.warn("Invalid Combination, not adding it.");
+            return;
+        }
+
+        if (!combinations.add(c)) {
+            logger.warn("Combination with same input, not adding it to list: " + Arrays.toString(c.getIndices()));
+            return;
+        }
+        pending.add(c);
+    }
+
+    /**
+     * Reads the file of a lazily registered {@link Combination} and executes its init script.
+     * Removes the combination again if it turns out to be empty or invalid.
+     *
+     * @param combination The {@link Combination}.
+     */
+    private void load(Combination combination) {
+        combination.load();
+        if (combination.isEmptyCombination()) {
+            if (combinations.remove(combination)) delete(combination.getFile());
+        } else if (combination.isInvalid()) {
+            logger.warn("Invalid Combination, removing it: " + combination.getFile().getName());
+            combinations.remove(combination);
+        }
+    }
+
+    /**
+     * Deletes the file of an empty combination.
+     *
+     * @param file The {@link File}.
+     */
+    private void delete(File file) {
+        logger.info("Removing empty combination " + file.getName());
+        try {
+            logger.debug("Successfully deleted file?: " + file.delete());
+        } catch (Exception e) {
+            logger.error("Can not delete file:", e);
+        }
+    }
+
     /**
      * Reloads all combinations. Also registers the prefabricated combinations (exit, reload, etc.)
      * <p>
+     * Combinations whose file has not changed since the last snapshot ({@link CombinationSnapshot}) are restored
+     * from it without reading the file or executing the init script again. When lazy loading is enabled (default),
+     * the other combinations are registered by their file names and then read in parallel. Combinations which are
+     * used before they have been read are read immediately. A new snapshot is written afterwards.
+     * <p>
      * Public because it is called by the reload combination.
      */
     @SuppressWarnings("WeakerAccess")
     public void reload() {
+        CompletableFuture<Void> reloaded = nextReload.getAndSet(new CompletableFuture<>());
+        try {
+            reloadFiles();
+        } finally {
+            reloaded.complete(null);
+        }
+    }
+
+    /**
+     * Registers the prefabricated combinations and the ones of the {@link #directory}, see {@link #reload()}.
+     */
+    private void reloadFiles() {
         util.showMessage("Reloading");
         combinations.clear();
+        for (PreviewContext context : previews) {
+            context.cursor.reset();
+        }
+        scripts.clear();
 
         register(new Combination(new GamepadInput[]{GamepadInput.BACK_SELECT},
                 "combination.setName(\"Application Setup\")", ""));
@@ -114,23 +220,143 @@ public class CombinationManager implements EventSubscriber {
         File[] files = directory.listFiles((dir, name) -> name.endsWith(".txt"));
         if (files == null) return;
         logger.debug(String.format("Found %d Combinations", files.length));
+
+        long start = System.currentTimeMillis();
+        Map<String, CombinationSnapshot.Entry> cached = useSnapshot ? snapshot.read(directory) : Collections.emptyMap();
+        List<File> changed = new ArrayList<>();
         for (File file : files) {
+            CombinationSnapshot.Entry entry = cached.get(file.getName());
+            Combination restored = entry != null ? entry.restore(file) : null;
+            if (restored != null) register(restored);
+            else changed.add(file);
+        }
+        //Changed, new or removed files
+        snapshotOutdated = !changed.isEmpty() || cached.size() + changed.size() != files.length;
+        logger.debug(String.format("Restored %d combinations from the snapshot", files.length - changed.size()));
+
+        if (!lazyLoading) {
+            for (File file : changed) {
+                register(file);
+            }
+            writeSnapshot();
+            return;
+        }
+
+        List<Combination> pending = new ArrayList<>();
+        for (File file : changed) {
+            registerLazy(file, pending);
+        }
+
+        CompletableFuture<?>[] tasks = new CompletableFuture[pending.size()];
+        try {
+            for (int i = 0; i < tasks.length; i++) {
+                Combination combination = pending.get(i);
+                tasks[i] = CompletableFuture.runAsync(() -> load(combination), loader);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not loading combinations, shutting down");
+            return;
+        }
+
+        loading = CompletableFuture.allOf(tasks).whenComplete((result, error) -> {
+            if (error != null) logger.error("An error occurred while loading combinations: ", error);
+            String message = String.format("Loaded %d combinations in %d ms",
+                    combinations.size(), System.currentTimeMillis() - start);
+            logger.info(message);
+            util.showMessage(message);
+            writeSnapshot();
+        });
+    }
+
+    /**
+     * Writes a new snapshot of all combinations, if it is enabled and something changed since the last one.
+     */
+    private void writeSnapshot() {
+        if (!useSnapshot || !snapshotOutdated || directory == null) return;
+        snapshotOutdated = false;
+        snapshot.write(directory, combinations.values());
+    }
+
+    /**
+     * Updates a single combination after its file has been created, modified or deleted.
+     * Prefabricated combinations can not be replaced, neither can combinations read from another file with the same
+     * input (e.g. {@code 2-5.txt} and {@code _25.txt}).
+     *
+     * @param file The combination {@link File}.
+     */
+    void update(File file) {
+        GamepadInput[] input = Combination.getInputForFile(file);
+        if (input == null) return;
+
+        Combination old = combinations.get(input);
+        if (old != null) {
+            if (old.isValidPrefabricatedCombination()) return;
+            if (old.getFile() == null || !old.getFile().getAbsoluteFile().equals(file.getAbsoluteFile())) {
+                logger.debug("Ignoring " + file.getName() + ", its input is bound to " + old.getFile());
+                return;
+            }
+            combinations.remove(old);
+            scripts.invalidate(old);
+        }
+        snapshotOutdated = true; //Written on exit or with the next reload
+
+        if (file.isFile()) {
             register(file);
+            logger.debug("Updated combination " + file.getName());
+        } else {
+            logger.debug("Removed combination " + file.getName());
         }
     }
 
+    /**
+     * @param lazyLoading Whether {@link #reload()} should only read the file names and load the files in parallel
+     *                    afterwards. If disabled, all files are read before the reload returns.
+     */
+    @SuppressWarnings("unused")
+    public void setLazyLoading(boolean lazyLoading) {
+        this.lazyLoading = lazyLoading;
+    }
+
+    /**
+     * @param useSnapshot Whether {@link #reload()} should restore unchanged combinations from the snapshot file in
+     *                    the combination directory (and write it). If disabled, every file is read and set up.
+     */
+    @SuppressWarnings("unused")
+    public void setUseSnapshot(boolean useSnapshot) {
+        this.useSnapshot = useSnapshot;
+    }
+
+    /**
+     * @return A future which completes when all combinations of the last reload have been loaded.
+     */
+    public CompletableFuture<Void> getLoading() {
+        return loading;
+    }
+
+    /**
+     * Has to be called before the reload is triggered, e.g. before firing {@link EventType#RELOAD}.
+     *
+     * @return A future which completes when the next reload has registered all combinations. Lazily registered
+     * ones may still be loading then, see {@link #getLoading()}.
+     */
+    public CompletableFuture<Void> getNextReload() {
+        return nextReload.get();
+    }
+
     /**
      * Edits a {@link Combination} using the default editor (determined by {@link Desktop#edit(File)}).
      *
+     * @param controller  The index of the controller which requested the edit.
      * @param combination The {@link Combination}. Prefabricated combinations can not be edited.
      */
-    private void edit(Combination combination) {
+    private void edit(int controller, Combination combination) {
         if (combination.isValidPrefabricatedCombination()) {
             util.showMessage("Can not edit prefabricated combinations");
             return;
         }
-        preview.closePreview();
+        getPreview(controller).preview.closePreview();
         combination.requireSetup();
+        scripts.invalidate(combination);
         File file = combination.getFile();
         if (!file.exists() || !file.isFile()) {
             try {
@@ -148,25 +374,196 @@ public class CombinationManager implements EventSubscriber {
     }
 
     /**
-     * Evaluates the {@code runScript} part of a {@link Combination}.
+     * Starts the {@code runScript} parts of the stages of a pipeline on the {@link ScriptExecutor}. Every stage waits
+     * for the result of the previous one and receives it as {@code input}, unless the stages run in parallel.
+     * A single combination is a pipeline with one stage.
      *
-     * @param combination The {@link Combination} to be executed.
+     * @param controller The index of the controller which typed the combinations.
+     * @param stages     The {@link Combination}s to be executed, in order.
+     * @param parallel   Whether all stages start at once, without an {@code input}.
+     * @return The {@link Execution} handle of the last stage or {@code null} if a combination is invalid.
      */
-    private void invoke(Combination combination) {
-        if (combination.isInvalid()) {
-            logger.warn("Trying to run an invalid combination");
-            return;
+    private Execution invoke(int controller, List<Combination> stages, boolean parallel) {
+        for (Combination stage : stages) {
+            if (stage.isInvalid()) {
+                logger.warn("Trying to run an invalid combination");
+                return null;
+            }
+        }
+
+        Execution previous = null;
+        for (int i = 0; i < stages.size(); i++) {
+            Combination stage = stages.get(i);
+            Execution source = parallel ? null : previous;
+            previous = executor.submit(stage, controller, source,
+                    () -> scripts.invoke(stage, source != null ? source.getResult() : null), i < stages.size() - 1);
+        }
+        return previous;
+    }
+
+    /**
+     * Finds the stages of a pipeline: the combinations typed (separated by {@link GamepadInput#PIPE}), or a single
+     * combination followed by the ones listed in its {@code :pipe} section.
+     *
+     * @param input The complete input.
+     * @return The {@link Combination}s or {@code null} if one of them does not exist.
+     */
+    private List<Combination> getStages(GamepadInput[] input) {
+        List<Combination> stages = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= input.length; i++) {
+            if (i < input.length && input[i] != GamepadInput.PIPE) continue;
+            if (i > start) stages.add(getCombinationForInput(Arrays.copyOfRange(input, start, i)));
+            start = i + 1;
         }
-        try {
-            Object result = interpreter.eval(defaultCode + combination.getRunScript());
 
-            if (result != null) {
-                util.showMessage(result.toString());
+        if (stages.size() == 1 && !stages.get(0).isInvalid()) {
+            for (GamepadInput[] stage : stages.get(0).getPipeline()) {
+                stages.add(getCombinationForInput(stage));
             }
-        } catch (EvalError evalError) {
-            logger.error("Could not evaluate code: ", evalError);
-            util.showMessage("Error: " + evalError.getErrorText() + "(Line " + evalError.getErrorLineNumber() + ")");
         }
+        for (Combination stage : stages) {
+            if (stage == null || stage.isInvalid()) return null;
+        }
+        return stages.isEmpty() ? null : stages;
+    }
+
+    /**
+     * @param input  The complete input.
+     * @param stages The stages found by {@link #getStages(GamepadInput[])}.
+     * @return Whether the stages have been listed in the {@code :pipe} section of a combination which declares them
+     * parallel ({@link Combination#isParallel()}). Typed pipelines always run in order.
+     */
+    private boolean isParallel(GamepadInput[] input, List<Combination> stages) {
+        for (GamepadInput i : input) {
+            if (i == GamepadInput.PIPE) return false;
+        }
+        return stages.get(0).isParallel();
+    }
+
+    /**
+     * @param input The current input, possibly with several stages.
+     * @return The input of the last stage, e.g. to preview or edit it.
+     */
+    private GamepadInput[] getLastStage(GamepadInput[] input) {
+        for (int i = input.length - 1; i >= 0; i--) {
+            if (input[i] == GamepadInput.PIPE) return Arrays.copyOfRange(input, i + 1, input.length);
+        }
+        return input;
+    }
+
+    /**
+     * @param key The current input as an {@link InputKey}, possibly with several stages, or {@link InputKey#NO_KEY}.
+     * @return The key of the last stage or {@link InputKey#NO_KEY}.
+     */
+    private long getLastStage(long key) {
+        if (key == InputKey.NO_KEY) return key;
+        int pipe = InputKey.lastIndexOf(key, GamepadInput.PIPE);
+        return pipe >= 0 ? InputKey.suffix(key, pipe + 1) : key;
+    }
+
+    /**
+     * Reports the end of an execution: records it and shows the result, the error or why it was stopped.
+     *
+     * @param execution The finished {@link Execution}.
+     */
+    private void finished(Execution execution) {
+        Combination combination = execution.getCombination();
+        ExecutionStatus status = execution.getStatus();
+        Metrics.recordInvocation(combination, execution.getDuration(), status == ExecutionStatus.COMPLETED);
+        if (status == ExecutionStatus.COMPLETED) rank(combination);
+
+        if (status == ExecutionStatus.COMPLETED) {
+            if (execution.getResult() != null && !execution.isIntermediate()) { //Results of stages are passed on
+                util.showMessage(execution.getResult().toString());
+            }
+        } else if (status == ExecutionStatus.FAILED) {
+            Throwable error = execution.getError();
+            if (error instanceof EvalError) {
+                EvalError evalError = (EvalError) error;
+                logger.error("Could not evaluate code: ", evalError);
+                util.showMessage("Error: " + evalError.getErrorText() + "(Line " + evalError.getErrorLineNumber() + ")");
+            } else {
+                logger.error("Could not run combination: ", error);
+                util.showMessage("Error: " + error);
+            }
+        } else if (status == ExecutionStatus.TIMED_OUT) {
+            logger.warn("Combination timed out: " + execution);
+            util.showMessage("Timed out: " + combination.getName());
+        } else if (status == ExecutionStatus.CANCELLED) {
+            logger.info("Combination cancelled: " + execution);
+            util.showMessage("Cancelled: " + combination.getName());
+        }
+    }
+
+    /**
+     * Counts a use of a combination, moves it up in the completions and writes the ranking in the background.
+     * Writes requested while one is pending are merged.
+     *
+     * @param combination The used {@link Combination}.
+     */
+    private void rank(Combination combination) {
+        ranking.use(combination, System.currentTimeMillis());
+        combinations.update(combination);
+
+        File dir = directory;
+        if (dir == null || !rankingPending.compareAndSet(false, true)) return;
+        try {
+            loader.execute(() -> {
+                rankingPending.set(false);
+                ranking.write(dir);
+            });
+        } catch (RejectedExecutionException e) {
+            rankingPending.set(false);
+            logger.debug("Not writing the ranking, shutting down");
+        }
+    }
+
+    /**
+     * Runs the {@link Combination} bound to an input (or the pipeline, see {@link GamepadInput#PIPE}) without waiting
+     * for it.
+     *
+     * @param controller The index of the controller the input belongs to.
+     * @param input      The complete input.
+     * @return The {@link Execution} handle (of the last stage) or {@code null} if no valid combination is bound to
+     * the input.
+     */
+    public Execution execute(int controller, GamepadInput[] input) {
+        List<Combination> stages = getStages(input);
+        return stages != null ? invoke(controller, stages, isParallel(input, stages)) : null;
+    }
+
+    /**
+     * Cancels running combinations.
+     *
+     * @param controller The index of the controller which typed the combinations, a negative number cancels
+     *                   the combinations of all controllers.
+     * @return The amount of cancelled combinations.
+     */
+    public int cancel(int controller) {
+        int cancelled = executor.cancel(controller);
+        logger.debug("Cancelled " + cancelled + " combination(s)");
+        return cancelled;
+    }
+
+    /**
+     * @param compileScripts Whether run scripts should be compiled to bytecode (and only be interpreted if they are
+     *                       not valid Java). Disabled by default (system property {@code abbreviation.script.compile}).
+     */
+    @SuppressWarnings("unused")
+    public void setCompileScripts(boolean compileScripts) {
+        scripts.setCompiler(compileScripts ? compiler : null);
+        scripts.clear();
+    }
+
+    /**
+     * @param millis The time after which a running combination is interrupted, 0 to disable the timeout.
+     *               By default {@value ScriptExecutor#DEFAULT_TIMEOUT} seconds (system property
+     *               {@code abbreviation.script.timeout}).
+     */
+    @SuppressWarnings("unused")
+    public void setTimeout(long millis) {
+        executor.setTimeout(millis);
     }
 
     /**
@@ -177,46 +574,71 @@ public class CombinationManager implements EventSubscriber {
     }
 
     /**
-     * Opens a preview window for a {@link GamepadInput} array.
+     * @param controller The index of the controller.
+     * @return The preview window and position in the index of the controller. Created on first use.
+     */
+    private PreviewContext getPreview(int controller) {
+        while (previews.size() <= controller) {
+            previews.add(new PreviewContext(previews.size()));
+        }
+        return previews.get(controller);
+    }
+
+    /**
+     * Opens a preview window for an {@link InputSequence}. Inputs which fit into an {@link InputKey} are looked up
+     * by their key, so the cursor takes one step per input without unpacking them. The remaining allocations per
+     * input are the list of completions and the unpacked inputs of the last stage, as the preview turns them into
+     * text anyway.
      *
-     * @param current The current, but not final, input.
+     * @param controller The index of the controller, every controller has its own preview.
+     * @param sequence   The current, but not final, input. Only the last stage of a pipeline is previewed.
      */
-    private void preview(GamepadInput[] current) {
-        Combination precise = getCombinationForInput(current);
+    private void preview(int controller, InputSequence sequence) {
+        PreviewContext context = getPreview(controller);
+        long start = System.nanoTime();
+        long key = getLastStage(sequence.getKey());
+        GamepadInput[] current = key == InputKey.NO_KEY ? getLastStage(sequence.getInputs()) : null;
+        CombinationIndex.Node node = current == null ? context.cursor.seek(key) : context.cursor.seek(current);
         List<Combination> possibilities = new ArrayList<>();
 
-        //Find all possible (from start to current point matching) combinations. Maximum: 5.
-        int index = 0;
-        while (index < combinations.size() && possibilities.size() < 6) {
-            Combination combination = combinations.get(index);
-            if (combination.isPartOf(current)) possibilities.add(combination);
-            index++;
-        }
+        //Find the possible (from start to current point matching) combinations used most. Maximum: 6.
+        combinations.completions(node, 6, possibilities);
+        Metrics.record(Stage.LOOKUP, System.nanoTime() - start);
+
+        if (current == null) current = InputKey.unpack(key);
 
-        preview.showPreview(precise, current, possibilities);
+        Combination precise = node != null && node.getCombination() != null
+                ? node.getCombination() : Combination.getCombinationForInput(current, directory);
+
+        context.preview.showPreview(precise, current, possibilities);
     }
 
     /**
-     * A utility method for {@link #invoke(Combination)}, but checks the combination before it calls the method.
+     * Transforms a {@link GamepadInput} array into {@link Combination}s (one, or several stages of a pipeline) and
+     * runs them after that.
      *
-     * @param combination The {@link Combination} which should be executes (the run script).
+     * @param controller The index of the controller which typed the input.
+     * @param current    The current {@link GamepadInput}.
      */
-    private void run(Combination combination) {
-        if (combination == null || combination.isInvalid()) {
+    private void run(int controller, GamepadInput[] current) {
+        List<Combination> stages = getStages(current);
+        if (stages == null) {
             util.showMessage("Not found");
         } else {
-            invoke(combination);
+            invoke(controller, stages, isParallel(current, stages));
         }
-        preview.closePreview();
+        getPreview(controller).preview.closePreview();
     }
 
     /**
-     * Transforms a {@link GamepadInput} array into a {@link Combination} and runs it after that.
-     *
-     * @param current The current {@link GamepadInput}.
+     * @param param The param of an EDIT_COMBINATION, RUN_COMBINATION or SHOW_PREVIEW event.
+     * @return The param as {@link InputSequence} ({@link GamepadInput} arrays belong to the first controller)
+     * or {@code null} if it has an invalid type.
      */
-    private void run(GamepadInput[] current) {
-        run(getCombinationForInput(current));
+    private InputSequence toSequence(Object param) {
+        if (param instanceof InputSequence) return (InputSequence) param;
+        if (param instanceof GamepadInput[]) return new InputSequence(0, (GamepadInput[]) param);
+        return null;
     }
 
     /**
@@ -227,34 +649,45 @@ public class CombinationManager implements EventSubscriber {
      * @return A matching {@link Combination}.
      */
     private Combination getCombinationForInput(GamepadInput[] input) {
-        for (Combination combination : combinations) {
-            if (combination.hasSameInput(input)) {
-                return combination;
-            }
-        }
+        long start = System.nanoTime();
+        Combination combination = combinations.get(input);
+        Metrics.record(Stage.LOOKUP, System.nanoTime() - start);
+        return combination != null ? combination : Combination.getCombinationForInput(input, directory);
+    }
 
-        return Combination.getCombinationForInput(input, directory);
+    /**
+     * Handles the events like {@link #onEvent(EventType, Object)} and measures {@link Stage#POLL_TO_PREVIEW}.
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEvent(EventType type, Object param, long fired) {
+        onEvent(type, param);
+        if (type == EventType.SHOW_PREVIEW) Metrics.record(Stage.POLL_TO_PREVIEW, System.nanoTime() - fired);
     }
 
     /**
      * Handles:
-     * - EDIT_COMBINATION (Parses and transfers it to {@link #edit(Combination)}
-     * - RUN_COMBINATION (Parses and transfers it to {@link #run(GamepadInput[])}
+     * - EDIT_COMBINATION (Parses and transfers it to {@link #edit(int, Combination)}
+     * - RUN_COMBINATION (Parses and transfers it to {@link #run(int, GamepadInput[])}
      * - RELOAD (Performs the reload. With {@link String} param it changes the {@link #directory}, otherwise simple reload)
-     * - SHOW_PREVIEW (Displays the preview using {@link #preview(GamepadInput[])}
+     * - SHOW_PREVIEW (Displays the preview of the controller using {@link #preview(int, InputSequence)}
+     * - COMBINATION_CHANGED (Reads a single changed file using {@link #update(File)})
+     * - CANCEL_EXECUTION (Cancels the running combinations of a controller or, without param, all of them)
      * {@inheritDoc}
      */
     @Override
     public void onEvent(EventType type, Object param) {
         if (type == EventType.EDIT_COMBINATION) {
-            if (param instanceof GamepadInput[]) {
-                edit(getCombinationForInput((GamepadInput[]) param));
+            InputSequence sequence = toSequence(param);
+            if (sequence != null) {
+                edit(sequence.getController(), getCombinationForInput(getLastStage(sequence.getInputs())));
             } else {
                 logger.error("Invalid param at EDIT_COMBINATION");
             }
         } else if (type == EventType.RUN_COMBINATION) {
-            if (param instanceof GamepadInput[]) {
-                run((GamepadInput[]) param);
+            InputSequence sequence = toSequence(param);
+            if (sequence != null) {
+                run(sequence.getController(), sequence.getInputs());
             } else {
                 logger.error("Invalid param at RUN_COMBINATION");
             }
@@ -268,23 +701,63 @@ public class CombinationManager implements EventSubscriber {
                     if (!dir.exists()) logger.debug("Could create combinations directory? " + dir.mkdir());
                 }
 
+                if (!dir.equals(directory)) {
+                    if (directory != null) ranking.write(directory);
+                    ranking.read(dir);
+                }
                 directory = dir;
+                watcher.watch(dir);
                 reload();
             } else {
                 if (directory != null) reload();
             }
         } else if (type == EventType.SHOW_PREVIEW) {
-            if (param instanceof GamepadInput[]) {
-                preview((GamepadInput[]) param);
+            InputSequence sequence = toSequence(param);
+            if (sequence != null) {
+                preview(sequence.getController(), sequence);
             } else {
                 logger.error("Invalid param at SHOW_PREVIEW");
             }
+        } else if (type == EventType.COMBINATION_CHANGED) {
+            if (param instanceof File) {
+                update((File) param);
+            } else {
+                logger.error("Invalid param at COMBINATION_CHANGED");
+            }
+        } else if (type == EventType.CANCEL_EXECUTION) {
+            if (param instanceof Integer) {
+                cancel((Integer) param);
+            } else if (param == null) {
+                cancel(-1);
+            } else {
+                logger.error("Invalid param at CANCEL_EXECUTION");
+            }
         }
     }
 
     @Override
     public void onExit() {
         logger.debug("Confirm shutdown");
-        preview.shutdown();
+        for (PreviewContext context : previews) {
+            context.preview.shutdown();
+        }
+        loader.shutdownNow();
+        executor.shutdown();
+        watcher.shutdown();
+        writeSnapshot();
+        if (directory != null) ranking.write(directory);
+    }
+
+    /**
+     * The preview window of a controller and its position in the {@link CombinationIndex}.
+     */
+    private class PreviewContext {
+
+        private final CombinationIndex.Cursor cursor = combinations.cursor();
+        private final PreviewManager preview;
+
+        private PreviewContext(int controller) {
+            preview = new PreviewManager(controller);
+        }
     }
 }
@@ -0,0 +1,202 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.util.Combination;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A binary snapshot of all read combinations, stored as {@link #FILE_NAME} in the combination directory.
+ * At startup, combinations whose file still has the same size and modification stamp are restored from it
+ * instead of being read and set up again.
+ * <p>
+ * Format (big endian): magic, version, amount of entries, then per entry: file name, size, modification stamp,
+ * indices (amount + ordinals as bytes), name (or length -1), amount of sections, then per section: name, text.
+ * Strings are stored as length + UTF-8 bytes.
+ */
+class CombinationSnapshot {
+
+    static final String FILE_NAME = ".combinations.cache";
+
+    private static final int MAGIC = 0x41424252; //ABBR
+    private static final int VERSION = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+
+    /**
+     * Reads the snapshot of a directory. It is read at once instead of being mapped, so the file is not locked
+     * until the mapping is collected and can be replaced by {@link #write(File, Collection)}.
+     *
+     * @param directory The combination directory.
+     * @return The entries by file name. Empty if there is no snapshot or it can not be read.
+     */
+    Map<String, Entry> read(File directory) {
+        File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) return Collections.emptyMap();
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.info("Ignoring snapshot of an unknown format");
+                return Collections.emptyMap();
+            }
+
+            int count = readLength(buffer);
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            GamepadInput[] values = GamepadInput.values();
+            for (int i = 0; i < count; i++) {
+                String fileName = readString(buffer);
+                long size = buffer.getLong();
+                long modified = buffer.getLong();
+                int length = buffer.get();
+                if (length < 0 || length > InputProcessor.LIMIT) throw new IOException("Invalid amount of inputs");
+                GamepadInput[] indices = new GamepadInput[length];
+                for (int j = 0; j < indices.length; j++) {
+                    int ordinal = buffer.get();
+                    if (ordinal < 0 || ordinal >= values.length) throw new IOException("Invalid input " + ordinal);
+                    indices[j] = values[ordinal];
+                }
+                String name = readString(buffer);
+                int sectionCount = readLength(buffer);
+                Map<String, String> sections = new LinkedHashMap<>();
+                for (int j = 0; j < sectionCount; j++) {
+                    sections.put(readString(buffer), readString(buffer));
+                }
+                entries.put(fileName, new Entry(size, modified, indices, name, sections));
+            }
+            return entries;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            logger.warn("Could not read the snapshot, reading all combinations: " + e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Writes the snapshot of a directory. The old snapshot is replaced atomically.
+     *
+     * @param directory    The combination directory.
+     * @param combinations The combinations. Only valid combinations which have been read from a file are stored.
+     */
+    void write(File directory, Collection<Combination> combinations) {
+        File temp = new File(directory, FILE_NAME + ".tmp");
+        int count = 0;
+        for (Combination c : combinations) {
+            if (isStorable(c)) count++;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            for (Combination c : combinations) {
+                if (!isStorable(c)) continue;
+                writeString(out, c.getFile().getName());
+                out.writeLong(c.getReadSize());
+                out.writeLong(c.getReadModified());
+                out.writeByte(c.getIndices().length);
+                for (GamepadInput input : c.getIndices()) {
+                    out.writeByte(input.ordinal());
+                }
+                writeString(out, c.getName());
+                Map<String, String> sections = c.getSections();
+                out.writeInt(sections.size());
+                for (Map.Entry<String, String> section : sections.entrySet()) {
+                    writeString(out, section.getKey());
+                    writeString(out, section.getValue());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Could not write the snapshot: ", e);
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), new File(directory, FILE_NAME).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote snapshot of " + count + " combinations");
+        } catch (IOException e) {
+            logger.error("Could not replace the snapshot: ", e);
+        }
+    }
+
+    /**
+     * @return Whether the combination has been read from a file and can be restored.
+     */
+    private boolean isStorable(Combination c) {
+        return c.getFile() != null && c.isLoaded() && !c.isInvalid() && c.getReadModified() != 0;
+    }
+
+    /**
+     * @return An amount of elements, each of them taking at least one of the remaining bytes.
+     * @throws IOException If the amount is negative or exceeds the remaining bytes, i.e. the snapshot is corrupt.
+     */
+    private static int readLength(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) throw new IOException("Invalid length " + length);
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) return null;
+        if (length < 0 || length > buffer.remaining()) throw new IOException("Invalid string length " + length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * A stored combination.
+     */
+    static class Entry {
+
+        private final long size;
+        private final long modified;
+        private final GamepadInput[] indices;
+        private final String name;
+        private final Map<String, String> sections;
+
+        private Entry(long size, long modified, GamepadInput[] indices, String name, Map<String, String> sections) {
+            this.size = size;
+            this.modified = modified;
+            this.indices = indices;
+            this.name = name;
+            this.sections = sections;
+        }
+
+        /**
+         * @param file The combination file.
+         * @return The restored combination, or {@code null} if the file has been changed since the snapshot.
+         */
+        Combination restore(File file) {
+            if (file.length() != size || file.lastModified() != modified) return null;
+            return new Combination(file, indices, name, sections, modified, size);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.util.Combination;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the combination directory and fires {@link EventType#COMBINATION_CHANGED} for every combination file
+ * which has been created, modified or deleted. Changes of the same file within {@link #DEBOUNCE_MILLIS} are
+ * merged into one event, because many editors write a file several times when saving it.
+ */
+public class CombinationWatcher {
+
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final EventManager events;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<Path, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private volatile WatchService service;
+    private Path directory;
+
+    /**
+     * @param events The {@link EventManager} used to fire the change events.
+     */
+    public CombinationWatcher(EventManager events) {
+        this.events = events;
+    }
+
+    /**
+     * Starts watching a directory. Stops watching the previous one.
+     *
+     * @param dir The combination directory.
+     */
+    public synchronized void watch(File dir) {
+        Path path = dir.toPath().toAbsolutePath();
+        if (path.equals(directory)) return;
+        stop();
+
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            path.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.error("Can not watch the combination directory: ", e);
+            return;
+        }
+        directory = path;
+
+        WatchService current = service;
+        Thread thread = new Thread(() -> process(current, path), "CombinationWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.debug("Watching " + path);
+    }
+
+    /**
+     * Waits for changes in the directory until the {@link WatchService} is closed.
+     *
+     * @param service   The {@link WatchService}.
+     * @param directory The watched directory.
+     */
+    private void process(WatchService service, Path directory) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) { //Changes were lost, fall back to a full reload
+                        events.fire(EventType.RELOAD, null);
+                        continue;
+                    }
+                    Path file = directory.resolve((Path) event.context());
+                    if (isCombinationFile(file) && service == this.service) schedule(file); //Not stopped meanwhile
+                }
+                if (!key.reset()) {
+                    logger.warn("The combination directory is not accessible anymore");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Stopped watching " + directory);
+        }
+    }
+
+    /**
+     * @param file The path of a changed file.
+     * @return Whether the file name is a valid combination file name (N-N-N.txt).
+     */
+    private boolean isCombinationFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".txt") && Combination.getInputForFile(file.toFile()) != null;
+    }
+
+    /**
+     * Fires the change event for a file after {@link #DEBOUNCE_MILLIS}, unless it changes again in the meantime.
+     *
+     * @param file The changed file.
+     */
+    private void schedule(Path file) {
+        pending.compute(file, (key, previous) -> {
+            if (previous != null) previous.cancel(false);
+            return scheduler.schedule(() -> {
+                pending.remove(key);
+                events.fire(EventType.COMBINATION_CHANGED, key.toFile());
+            }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Stops watching the current directory. Changes which have not been fired yet are dropped.
+     */
+    private void stop() {
+        pending.values().forEach(future -> future.cancel(false));
+        pending.clear();
+        if (service == null) return;
+        try {
+            service.close();
+        } catch (IOException e) {
+            logger.error("Can not close the watch service: ", e);
+        }
+        service = null;
+        directory = null;
+    }
+
+    /**
+     * Stops watching and shuts down the debounce scheduler. This action is NOT REVERSIBLE.
+     */
+    public synchronized void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,48 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.UtilMethods;
+import me.niklas.abbreviation.util.VersionInfo;
+import org.slf4j.Logger;
+
+import java.util.Map;
+
+/**
+ * The super class of run scripts compiled by the {@link ScriptCompiler}. The fields are named like the variables of
+ * the interpreter, so the same script works in both.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public abstract class CompiledScript {
+
+    protected Logger Logger;
+    protected UtilMethods Utils;
+    protected VersionInfo VersionInfo;
+    protected CombinationManager Combinations;
+    protected EventManager EventManager;
+    protected Combination combination;
+
+    /**
+     * Sets the variables visible to the script.
+     *
+     * @param bindings    The variables of the interpreter, by name.
+     * @param combination The {@link Combination} the script belongs to.
+     */
+    final void bind(Map<String, Object> bindings, Combination combination) {
+        this.Logger = (org.slf4j.Logger) bindings.get("Logger");
+        this.Utils = (UtilMethods) bindings.get("Utils");
+        this.VersionInfo = (me.niklas.abbreviation.util.VersionInfo) bindings.get("VersionInfo");
+        this.Combinations = (CombinationManager) bindings.get("Combinations");
+        this.EventManager = (me.niklas.abbreviation.events.EventManager) bindings.get("EventManager");
+        this.combination = combination;
+    }
+
+    /**
+     * Runs the script.
+     *
+     * @param input The result of the previous stage of a pipeline, or {@code null}.
+     * @return The returned value of the script, or {@code null}.
+     * @throws Exception Anything the script throws.
+     */
+    public abstract Object run(Object input) throws Exception;
+}
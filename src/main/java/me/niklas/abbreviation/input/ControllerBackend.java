@@ -0,0 +1,45 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+
+/**
+ * A source of controller states, polled by the {@link GamepadInputReceiver}. Implemented by {@link JamepadBackend}
+ * for real gamepads and by scripted controllers in tests.
+ * <p>
+ * Every poll calls {@link #update()} once and then reads all controllers, so backends can fetch the state of all
+ * devices in one batch.
+ */
+public interface ControllerBackend {
+
+    /**
+     * Fetches the current state of all controllers. Called once per poll, before the controllers are read.
+     */
+    default void update() { //Optional to implement
+    }
+
+    /**
+     * @return The amount of controllers which can be read. Must not change.
+     */
+    int getControllerCount();
+
+    /**
+     * Reads the state of a controller, as fetched by the last {@link #update()}.
+     *
+     * @param controller The index of the controller, starting at 0.
+     * @return A bit mask of all pressed inputs: bit {@code n} is set if the {@link GamepadInput} with the ordinal
+     * {@code n} is pressed. 0 if nothing is pressed or the controller is not connected.
+     */
+    int read(int controller);
+
+    /**
+     * @param controller The index of the controller, starting at 0.
+     * @return Whether the controller was connected during the last {@link #read(int)}.
+     */
+    boolean isConnected(int controller);
+
+    /**
+     * Releases the resources of the backend. No more reads are performed afterwards.
+     */
+    default void close() { //Optional to implement
+    }
+}
@@ -0,0 +1,184 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.ExecutionStatus;
+import me.niklas.abbreviation.util.Combination;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A handle of a run script executed by the {@link ScriptExecutor}. The status changes exactly once, from
+ * {@link ExecutionStatus#RUNNING} to one of the final states. A result which arrives after the execution has been
+ * cancelled or has timed out is discarded.
+ */
+public final class Execution {
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private final int id = IDS.incrementAndGet();
+    private final ScriptExecutor executor;
+    private final Combination combination;
+    private final int controller;
+    private final boolean intermediate;
+    private volatile long started = System.nanoTime();
+    private final AtomicReference<ExecutionStatus> status = new AtomicReference<>(ExecutionStatus.RUNNING);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Future<?> future;
+    private volatile Future<?> deadline;
+    private volatile Thread thread;
+    private volatile Object result;
+    private volatile Throwable error;
+    private volatile long duration;
+
+    Execution(ScriptExecutor executor, Combination combination, int controller, boolean intermediate) {
+        this.executor = executor;
+        this.combination = combination;
+        this.controller = controller;
+        this.intermediate = intermediate;
+    }
+
+    /**
+     * Sets the final state.
+     *
+     * @return Whether the state was changed. {@code false} if the execution had already finished.
+     */
+    boolean finish(ExecutionStatus status, Object result, Throwable error) {
+        if (!this.status.compareAndSet(ExecutionStatus.RUNNING, status)) return false;
+        this.result = result;
+        this.error = error;
+        this.duration = System.nanoTime() - started;
+        done.countDown();
+        return true;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    Future<?> getFuture() {
+        return future;
+    }
+
+    /**
+     * Restarts the clock of the duration, e.g. once a stage of a pipeline has received its input.
+     */
+    void start() {
+        started = System.nanoTime();
+    }
+
+    void setThread(Thread thread) {
+        this.thread = thread;
+    }
+
+    Thread getThread() {
+        return thread;
+    }
+
+    void setDeadline(Future<?> deadline) {
+        this.deadline = deadline;
+    }
+
+    Future<?> getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Cancels the execution and interrupts the script. Does nothing if it has already finished.
+     *
+     * @return Whether the execution was cancelled.
+     */
+    public boolean cancel() {
+        return executor.stop(this, ExecutionStatus.CANCELLED);
+    }
+
+    /**
+     * Waits until the execution has finished.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of {@code timeout}.
+     * @return Whether the execution has finished in time.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * Waits until the execution has finished and returns its result.
+     *
+     * @return The returned value of the script.
+     * @throws InterruptedException  If the current thread is interrupted while waiting.
+     * @throws CancellationException If the script did not complete successfully.
+     */
+    public Object get() throws InterruptedException {
+        done.await();
+        if (getStatus() != ExecutionStatus.COMPLETED) throw new CancellationException(this + " did not complete");
+        return result;
+    }
+
+    /**
+     * @return A number identifying the execution, increasing with every execution.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The executed {@link Combination}.
+     */
+    public Combination getCombination() {
+        return combination;
+    }
+
+    /**
+     * @return The index of the controller which typed the combination.
+     */
+    public int getController() {
+        return controller;
+    }
+
+    /**
+     * @return Whether this is a stage of a pipeline whose result is passed on instead of being shown.
+     */
+    public boolean isIntermediate() {
+        return intermediate;
+    }
+
+    /**
+     * @return The current {@link ExecutionStatus}.
+     */
+    public ExecutionStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * @return The returned value of the script, {@code null} if it returned nothing or has not completed.
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    /**
+     * @return Why the script failed, {@code null} if it did not fail.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return The time from starting the script (or from submission, if it never started) to the final state in
+     * nanoseconds, 0 while running.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + " " + combination.getName() + " (" + getStatus() + ")";
+    }
+}
@@ -1,118 +1,224 @@
 package me.niklas.abbreviation.input;
 
-import com.studiohartman.jamepad.ControllerManager;
-import com.studiohartman.jamepad.ControllerState;
 import me.niklas.abbreviation.enums.EventType;
 import me.niklas.abbreviation.enums.GamepadInput;
 import me.niklas.abbreviation.events.EventManager;
 import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.util.ControllerInput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Niklas on 13.10.2018 in abbreviation
+ * <p>
+ * Polls all controllers of a {@link ControllerBackend} in one pass on a single thread, adaptively: every
+ * {@link #ACTIVE_DELAY} ms while the input of any controller changes, backing off exponentially up to
+ * {@link #IDLE_DELAY} ms when nothing happens and {@link #DISCONNECTED_DELAY} ms while no controller is connected.
+ * The fired inputs are tagged with the index of their controller ({@link ControllerInput}).
+ * <p>
+ * Every poll reads all inputs of a controller as one bit mask and compares it with the previous one, so every press and release is
+ * detected, even if several buttons change at once. Buttons which are part of a chord ({@link #bindChord}) are held
+ * back for up to {@link #CHORD_WINDOW} ms or until one of them is released: if all buttons of the chord are pressed
+ * until then, the chord is typed as a single input instead. Polling does not create any objects unless an input is fired.
  */
 public class GamepadInputReceiver implements Runnable, EventSubscriber {
 
-    private final ControllerManager manager = new ControllerManager();
+    private static final long ACTIVE_DELAY = 5;
+    private static final long IDLE_DELAY = 100; //Any edge switches back to ACTIVE_DELAY
+    private static final long DISCONNECTED_DELAY = 1000;
+    private static final long ACTIVE_WINDOW = 1000;
+    private static final long CHORD_WINDOW = 50;
+
+    private final ControllerBackend backend;
     private final EventManager eventManager;
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private final Logger logger = LoggerFactory.getLogger("InputReceiver");
-    private ControllerState state;
-    private int last = 0;
+    private volatile int[] chordMasks = new int[0];
+    private volatile GamepadInput[] chordInputs = new GamepadInput[0];
+    private volatile int chordButtons = 0;
+    private final int[] last;
+    private final int[] held;
+    private final long[] heldSince;
+    private long delay = ACTIVE_DELAY;
+    private long lastChange = 0;
+    private long polled = 0;
 
+    /**
+     * Reads up to {@link JamepadBackend#DEFAULT_CONTROLLERS} gamepads using SDL.
+     *
+     * @param eventManager The {@link EventManager} the {@link EventType#TYPED} events are fired to.
+     */
     public GamepadInputReceiver(EventManager eventManager) {
+        this(eventManager, new JamepadBackend());
+    }
+
+    /**
+     * @param eventManager The {@link EventManager} the {@link EventType#TYPED} events are fired to.
+     * @param backend      The {@link ControllerBackend} which is polled.
+     */
+    public GamepadInputReceiver(EventManager eventManager, ControllerBackend backend) {
         this.eventManager = eventManager;
-        manager.initSDLGamepad();
-        scheduler.scheduleAtFixedRate(this::run, 100, 50, TimeUnit.MILLISECONDS);
+        this.backend = backend;
+
+        int controllers = backend.getControllerCount();
+        last = new int[controllers];
+        held = new int[controllers];
+        heldSince = new long[controllers];
+        schedule(100);
+    }
+
+    /**
+     * Types multiple buttons pressed at the same time as a single input. Chords with more buttons are preferred
+     * over chords with fewer buttons.
+     *
+     * @param input   The input typed by the chord.
+     * @param buttons The buttons of the chord, at least two.
+     */
+    public synchronized void bindChord(GamepadInput input, GamepadInput... buttons) {
+        int mask = 0;
+        for (GamepadInput button : buttons) {
+            if (button != GamepadInput.NONE) mask |= 1 << button.ordinal();
+        }
+        if (Integer.bitCount(mask) < 2) {
+            logger.error("A chord needs at least two buttons: " + input);
+            return;
+        }
+
+        //Copy on write, the poll thread only reads the arrays
+        int length = chordMasks.length;
+        int[] masks = Arrays.copyOf(chordMasks, length + 1);
+        GamepadInput[] inputs = Arrays.copyOf(chordInputs, length + 1);
+        masks[length] = mask;
+        inputs[length] = input;
+        chordInputs = inputs;
+        chordMasks = masks;
+        chordButtons |= mask;
+    }
+
+    /**
+     * Repeatedly called in order to update the current input of all controllers. Fires {@link EventType#TYPED} for
+     * every pressed input and {@link EventType#RELEASED} for every released one. Schedules the next call afterwards.
+     */
+    @Override
+    public void run() {
+        try {
+            backend.update();
+            polled = System.nanoTime(); //Passed with the fired events, so the latency is measured from here
+            long now = System.currentTimeMillis();
+            boolean connected = false;
+            boolean active = false;
+            for (int c = 0; c < last.length; c++) {
+                int state = backend.read(c);
+                if (backend.isConnected(c)) connected = true;
+                else state = 0; //Releases everything of an unplugged controller
+
+                active |= state != last[c];
+                poll(c, state, now);
+                active |= held[c] != 0;
+            }
+
+            if (!connected) {
+                delay = DISCONNECTED_DELAY;
+            } else if (active) { //Pressed or released something
+                delay = ACTIVE_DELAY;
+                lastChange = now;
+            } else if (now - lastChange > ACTIVE_WINDOW) {
+                delay = Math.min(delay * 2, IDLE_DELAY);
+            } else {
+                delay = ACTIVE_DELAY;
+            }
+        } catch (Exception e) {
+            logger.error("An error occurred while reading the controllers: ", e);
+        }
+        schedule(delay);
     }
 
     /**
-     * @return The current input state. The first pressed button is checked and if it ia not equal to
-     * the last pressed one, it is returned.
+     * Compares a state with the previous one of the same controller and fires the edges.
+     *
+     * @param controller The index of the controller.
+     * @param state      The bit mask of the pressed inputs.
+     * @param now        The current time in milliseconds.
      */
-    private GamepadInput getCurrentInput() {
-        if (!isControllerConnected()) return GamepadInput.NONE;
-        int result = 0;
-
-        if (state.start) {
-            result = 1;
-        } else if (state.a) {
-            result = 2;
-        } else if (state.x) {
-            result = 3;
-        } else if (state.y) {
-            result = 4;
-        } else if (state.b) {
-            result = 5;
-        } else if (state.dpadDown) {
-            result = 6;
-        } else if (state.dpadLeft) {
-            result = 7;
-        } else if (state.dpadUp) {
-            result = 8;
-        } else if (state.dpadRight) {
-            result = 9;
-        } else if (state.back) {
-            result = 10;
-        } else if (state.lb) {
-            result = 11;
-        } else if (state.rb) {
-            result = 12;
-        } else if (state.leftTrigger > 0.2) {
-            result = 13;
-        } else if (state.rightTrigger > 0.2) {
-            result = 14;
-        } else if (state.leftStickY < -0.5) { //Left Down
-            result = 15;
-        } else if (state.leftStickX < -0.5) { //Left Left
-            result = 16;
-        } else if (state.leftStickY > 0.5) { //Left Up
-            result = 17;
-        } else if (state.leftStickX > 0.5) { //Left Right
-            result = 18;
-        } else if (state.rightStickY < -0.5) { //Right Down
-            result = 19;
-        } else if (state.rightStickX < -0.5) { //Right Left
-            result = 20;
-        } else if (state.rightStickY > 0.5) { //Right Up
-            result = 21;
-        } else if (state.rightStickX > 0.5) { //Right Right
-            result = 22;
-        } else if (state.leftStickClick) { //Left Click
-            result = 23;
-        } else if (state.rightStickClick) { //Right Click
-            result = 24;
+    private void poll(int controller, int state, long now) {
+        int pressed = state & ~last[controller];
+        int released = last[controller] & ~state;
+        last[controller] = state;
+
+        int chord = chordButtons;
+        fire(EventType.TYPED, controller, pressed & ~chord); //Not part of any chord, no need to wait
+        if ((pressed & chord) != 0) {
+            if (held[controller] == 0) heldSince[controller] = now;
+            held[controller] |= pressed & chord;
         }
+        fire(EventType.RELEASED, controller, released & ~held[controller]);
 
+        //Releasing a held back button ends the chord early
+        if (held[controller] != 0 && ((released & held[controller]) != 0 || now - heldSince[controller] >= CHORD_WINDOW)) {
+            resolveChords(controller);
+        }
+    }
 
-        if (result == last) {
-            return GamepadInput.NONE;
+    /**
+     * Types the held back buttons of a controller: as chords if all of their buttons have been pressed,
+     * otherwise one by one.
+     *
+     * @param controller The index of the controller.
+     */
+    private void resolveChords(int controller) {
+        int[] masks = chordMasks;
+        GamepadInput[] inputs = chordInputs;
+        int buttons = held[controller];
+        while (true) {
+            int best = -1;
+            for (int i = 0; i < masks.length; i++) {
+                if ((buttons & masks[i]) == masks[i] && (best < 0 || Integer.bitCount(masks[i]) > Integer.bitCount(masks[best]))) {
+                    best = i;
+                }
+            }
+            if (best < 0) break;
+            eventManager.fire(EventType.TYPED, ControllerInput.of(controller, inputs[best]), polled);
+            buttons &= ~masks[best];
         }
-        last = result;
-        return GamepadInput.valueOf(result);
+        fire(EventType.TYPED, controller, buttons);
+
+        //Buttons which were released while being held back did not fire their release yet
+        fire(EventType.RELEASED, controller, held[controller] & ~last[controller]);
+        held[controller] = 0;
     }
 
     /**
-     * Updates the current state and checks whether a controller is connected.
+     * Fires an event for every input of a mask, in the order of the inputs.
      *
-     * @return Whether a controller is connected.
+     * @param type       The type of the events.
+     * @param controller The index of the controller.
+     * @param mask       The bit mask of the inputs.
      */
-    private boolean isControllerConnected() {
-        state = manager.getState(0);
-        return state.isConnected;
+    private void fire(EventType type, int controller, int mask) {
+        while (mask != 0) {
+            int bit = Integer.numberOfTrailingZeros(mask);
+            eventManager.fire(type, ControllerInput.of(controller, GamepadInput.valueOf(bit)), polled);
+            mask &= mask - 1;
+        }
     }
 
     /**
-     * Repeatedly called in order to update the current input. If an input was found, the {@link EventType#TYPED} event is fired.
+     * Schedules the next poll.
+     *
+     * @param millis The delay in milliseconds.
      */
-    @Override
-    public void run() {
-        if (getCurrentInput() != GamepadInput.NONE) eventManager.fire(EventType.TYPED, GamepadInput.valueOf(last));
+    private void schedule(long millis) {
+        try {
+            scheduler.schedule(this, millis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not polling anymore, shutting down");
+        }
     }
 
     /**
@@ -124,11 +230,17 @@ public class GamepadInputReceiver implements Runnable, EventSubscriber {
     }
 
     /**
-     * Shuts down the repeating task.
+     * Stops polling and closes the backend.
      */
     @Override
     public void onExit() {
         logger.debug("Confirm shutdown");
         scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS); //Do not close the backend while it is being read
+        } catch (InterruptedException e) {
+            logger.debug("Interrupted while waiting for the last poll");
+        }
+        backend.close();
     }
 }
@@ -2,77 +2,163 @@ package me.niklas.abbreviation.input;
 
 import me.niklas.abbreviation.enums.EventType;
 import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.enums.Stage;
 import me.niklas.abbreviation.events.EventManager;
 import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.metrics.Metrics;
+import me.niklas.abbreviation.util.ControllerInput;
+import me.niklas.abbreviation.util.InputKey;
+import me.niklas.abbreviation.util.InputSequence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+
 /**
  * Created by Niklas on 24.02.2019 in abbreviation
+ * <p>
+ * Keeps one input buffer per controller, so several people can type at the same time. Every buffer holds the
+ * ordinals of up to {@link #getMaxLength()} inputs as bytes and is allocated once per controller, next to the
+ * {@link InputKey} of its first {@link InputKey#MAX_LENGTH} inputs, which is extended with every input. The published
+ * {@link InputSequence}s take over the key and only copy the inputs after it, so later inputs do not modify them.
  */
 public class InputProcessor implements EventSubscriber {
 
+    /**
+     * The maximum amount of inputs of a combination, unless configured otherwise.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 10;
+    /**
+     * The highest configurable maximum amount of inputs.
+     */
+    public static final int LIMIT = 64;
+
     private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
     private final EventManager eventManager;
-    private GamepadInput[] current;
+    private final int maxLength;
+    private byte[][] current = new byte[0][];
+    private int[] lengths = new int[0];
+    private long[] keys = new long[0];
 
     /**
-     * Creates a new instance of the InputProcessor class.
+     * Creates a new instance of the InputProcessor class. The maximum length is read from the system property
+     * {@code abbreviation.input.length}.
      *
      * @param eventManager The {@link EventManager}.
      */
     public InputProcessor(EventManager eventManager) {
+        this(eventManager, Integer.getInteger("abbreviation.input.length", DEFAULT_MAX_LENGTH));
+    }
+
+    /**
+     * @param eventManager The {@link EventManager}.
+     * @param maxLength    The maximum amount of inputs of a combination, limited to 1 to {@link #LIMIT}.
+     */
+    public InputProcessor(EventManager eventManager, int maxLength) {
         this.eventManager = eventManager;
-        current = new GamepadInput[0];
+        this.maxLength = Math.max(1, Math.min(maxLength, LIMIT));
     }
 
     /**
-     * Increases the size of a GameInput array by one.
+     * @return The maximum amount of inputs of a combination.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Handles a typed input of a controller.
      *
-     * @param array The old array.
-     * @return The new array size+1).
+     * @param controller The index of the controller.
+     * @param input      The typed input.
+     * @param polled     The time the input has been polled, passed on with the preview.
      */
-    private GamepadInput[] increaseSize(GamepadInput[] array) {
-        GamepadInput[] newArray = new GamepadInput[array.length + 1];
-        System.arraycopy(array, 0, newArray, 0, array.length);
-        return newArray;
+    private void type(int controller, GamepadInput input, long polled) {
+        if (controller >= current.length) { //First input of this controller
+            int count = current.length;
+            current = Arrays.copyOf(current, controller + 1);
+            lengths = Arrays.copyOf(lengths, controller + 1);
+            keys = Arrays.copyOf(keys, controller + 1);
+            for (int c = count; c < current.length; c++) {
+                current[c] = new byte[maxLength];
+            }
+        }
+        byte[] buffer = current[controller];
+        int length = lengths[controller];
+        long key = keys[controller];
+
+        if (input == GamepadInput.CANCEL) { //Cancel chord, stops the running combinations of the controller
+            eventManager.fire(EventType.CANCEL_EXECUTION, controller);
+            reset(controller);
+        } else if (input == GamepadInput.START) {
+            eventManager.fire(EventType.RUN_COMBINATION, new InputSequence(controller, key, buffer, length));
+            reset(controller);
+        } else if (input == GamepadInput.PIPE && (length == 0 || buffer[length - 1] == GamepadInput.PIPE.ordinal())) {
+            logger.debug("Ignoring PIPE without a stage in front of it");
+        } else if (input == GamepadInput.BACK_SELECT && length > 0) { //Edit file
+            eventManager.fire(EventType.EDIT_COMBINATION, new InputSequence(controller, key, buffer, length));
+            reset(controller);
+        } else {
+            logger.debug("Input: {}", input);
+            if (length == maxLength) {
+                logger.debug("Max length reached.");
+                eventManager.fire(EventType.SHOW_MESSAGE, "Combinations can not be longer than " + maxLength + " inputs");
+                return;
+            }
+
+            buffer[length] = (byte) input.ordinal();
+            if (length < InputKey.MAX_LENGTH) key = keys[controller] = InputKey.append(key, input);
+            lengths[controller] = ++length;
+            eventManager.fire(EventType.SHOW_PREVIEW, new InputSequence(controller, key, buffer, length), polled);
+        }
+    }
+
+    /**
+     * Clears the input buffer of a controller.
+     *
+     * @param controller The index of the controller.
+     */
+    private void reset(int controller) {
+        lengths[controller] = 0;
+        keys[controller] = InputKey.EMPTY;
     }
 
     /**
      * Handles:
-     * - TYPED (Adds the buttons (up to 10), runs the combination, opens edit dialog, reloads)
+     * - TYPED (Adds the buttons (up to the maximum length) to the buffer of the controller, runs the combination, opens edit dialog,
+     * cancels running combinations, separates the stages of a pipeline)
      * {@inheritDoc}
      */
     @Override
     public void onEvent(EventType type, Object param) {
-        if (type == EventType.TYPED) {
-            if (param instanceof GamepadInput) {
-                GamepadInput input = (GamepadInput) param;
-                if (input == GamepadInput.NONE) {
-                    logger.error("Input is NONE at TYPED");
-                    return;
-                }
-                if (input == GamepadInput.START) {
-                    eventManager.fire(EventType.RUN_COMBINATION, current);
-                    current = new GamepadInput[0];
-                } else if (input == GamepadInput.BACK_SELECT && current.length > 0) { //Edit file
-                    eventManager.fire(EventType.EDIT_COMBINATION, current);
-                    current = new GamepadInput[0];
-                } else {
-                    logger.debug("Input: " + input.name());
-                    if (current.length == 10) {
-                        logger.debug("Max length reached.");
-                        eventManager.fire(EventType.SHOW_PREVIEW, current);
-                        return;
-                    }
+        onEvent(type, param, System.nanoTime());
+    }
 
-                    current = increaseSize(current);
-                    current[current.length > 0 ? current.length - 1 : 0] = GamepadInput.valueOf(input.ordinal());
-                    eventManager.fire(EventType.SHOW_PREVIEW, current);
-                }
+    /**
+     * Handles the events like {@link #onEvent(EventType, Object)} and measures {@link Stage#POLL_TO_TYPED}.
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEvent(EventType type, Object param, long fired) {
+        if (type == EventType.TYPED) {
+            int controller = 0;
+            GamepadInput input;
+            if (param instanceof ControllerInput) {
+                controller = ((ControllerInput) param).getController();
+                input = ((ControllerInput) param).getInput();
+            } else if (param instanceof GamepadInput) {
+                input = (GamepadInput) param;
             } else {
                 logger.warn("param is not of type GamepadInput in TYPED");
+                return;
+            }
+
+            if (input == GamepadInput.NONE) {
+                logger.error("Input is NONE at TYPED");
+                return;
             }
+            type(controller, input, fired);
+            Metrics.record(Stage.POLL_TO_TYPED, System.nanoTime() - fired);
         }
     }
 }
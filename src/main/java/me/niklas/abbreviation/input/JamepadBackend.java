@@ -0,0 +1,131 @@
+package me.niklas.abbreviation.input;
+
+import com.studiohartman.jamepad.ControllerAxis;
+import com.studiohartman.jamepad.ControllerButton;
+import com.studiohartman.jamepad.ControllerIndex;
+import com.studiohartman.jamepad.ControllerManager;
+import com.studiohartman.jamepad.ControllerUnpluggedException;
+import me.niklas.abbreviation.enums.GamepadInput;
+
+import static me.niklas.abbreviation.enums.GamepadInput.*;
+
+/**
+ * Reads gamepads using SDL (via Jamepad). All controllers are updated at once, then read through their
+ * {@link ControllerIndex}, so polling does not create any objects.
+ */
+public class JamepadBackend implements ControllerBackend {
+
+    private static final float TRIGGER_THRESHOLD = 0.2f;
+    private static final float STICK_THRESHOLD = 0.5f;
+
+    /**
+     * The amount of controllers read by default (the default of SDL/Jamepad).
+     */
+    public static final int DEFAULT_CONTROLLERS = 4;
+
+    private final ControllerManager manager;
+    private final ControllerIndex[] controllers;
+    private final boolean[] connected;
+
+    public JamepadBackend() {
+        this(DEFAULT_CONTROLLERS);
+    }
+
+    /**
+     * @param controllers The amount of controllers which are read.
+     */
+    public JamepadBackend(int controllers) {
+        manager = new ControllerManager(controllers);
+        manager.initSDLGamepad();
+        this.controllers = new ControllerIndex[controllers];
+        this.connected = new boolean[controllers];
+        for (int i = 0; i < controllers; i++) {
+            this.controllers[i] = manager.getControllerIndex(i);
+        }
+    }
+
+    /**
+     * Lets SDL update all controllers at once.
+     */
+    @Override
+    public void update() {
+        manager.update();
+    }
+
+    @Override
+    public int getControllerCount() {
+        return controllers.length;
+    }
+
+    @Override
+    public int read(int index) {
+        ControllerIndex controller = controllers[index];
+        connected[index] = controller.isConnected();
+        if (!connected[index]) return 0;
+
+        try {
+            int state = 0;
+            state |= button(controller, ControllerButton.START, START);
+            state |= button(controller, ControllerButton.A, A);
+            state |= button(controller, ControllerButton.X, X);
+            state |= button(controller, ControllerButton.Y, Y);
+            state |= button(controller, ControllerButton.B, B);
+            state |= button(controller, ControllerButton.DPAD_DOWN, DPAD_DOWN);
+            state |= button(controller, ControllerButton.DPAD_LEFT, DPAD_LEFT);
+            state |= button(controller, ControllerButton.DPAD_UP, DPAD_UP);
+            state |= button(controller, ControllerButton.DPAD_RIGHT, DPAD_RIGHT);
+            state |= button(controller, ControllerButton.BACK, BACK_SELECT);
+            state |= button(controller, ControllerButton.LEFTBUMPER, LB);
+            state |= button(controller, ControllerButton.RIGHTBUMPER, RB);
+            state |= button(controller, ControllerButton.LEFTSTICK, LS_PRESS);
+            state |= button(controller, ControllerButton.RIGHTSTICK, RS_PRESS);
+
+            state |= axis(controller.getAxisState(ControllerAxis.TRIGGERLEFT) > TRIGGER_THRESHOLD, LT);
+            state |= axis(controller.getAxisState(ControllerAxis.TRIGGERRIGHT) > TRIGGER_THRESHOLD, RT);
+
+            float leftX = controller.getAxisState(ControllerAxis.LEFTX);
+            float leftY = controller.getAxisState(ControllerAxis.LEFTY);
+            float rightX = controller.getAxisState(ControllerAxis.RIGHTX);
+            float rightY = controller.getAxisState(ControllerAxis.RIGHTY);
+            state |= axis(leftY < -STICK_THRESHOLD, LS_DOWN);
+            state |= axis(leftX < -STICK_THRESHOLD, LS_LEFT);
+            state |= axis(leftY > STICK_THRESHOLD, LS_UP);
+            state |= axis(leftX > STICK_THRESHOLD, LS_RIGHT);
+            state |= axis(rightY < -STICK_THRESHOLD, RS_DOWN);
+            state |= axis(rightX < -STICK_THRESHOLD, RS_LEFT);
+            state |= axis(rightY > STICK_THRESHOLD, RS_UP);
+            state |= axis(rightX > STICK_THRESHOLD, RS_RIGHT);
+            return state;
+        } catch (ControllerUnpluggedException e) {
+            connected[index] = false;
+            return 0;
+        }
+    }
+
+    /**
+     * @return The bit of {@code input} if the button is pressed, otherwise 0.
+     */
+    private int button(ControllerIndex controller, ControllerButton button, GamepadInput input) throws ControllerUnpluggedException {
+        return controller.isButtonPressed(button) ? 1 << input.ordinal() : 0;
+    }
+
+    /**
+     * @return The bit of {@code input} if the axis is beyond its threshold, otherwise 0.
+     */
+    private int axis(boolean active, GamepadInput input) {
+        return active ? 1 << input.ordinal() : 0;
+    }
+
+    @Override
+    public boolean isConnected(int controller) {
+        return connected[controller];
+    }
+
+    /**
+     * Shuts down SDL.
+     */
+    @Override
+    public void close() {
+        manager.quitSDLGamepad();
+    }
+}
@@ -0,0 +1,164 @@
+package me.niklas.abbreviation.input;
+
+import bsh.BshMethod;
+import bsh.EvalError;
+import bsh.Interpreter;
+import bsh.NameSpace;
+import bsh.ParseException;
+import bsh.Primitive;
+import bsh.UtilEvalError;
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.InterpreterPool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the parsed run scripts of {@link Combination}s. Every run script is declared once as a scripted method
+ * inside its own {@link NameSpace}, invoking it later only executes the already parsed method body.
+ * Invocations borrow an {@link Interpreter} from an {@link InterpreterPool}, so scripts can run concurrently.
+ * If a {@link ScriptCompiler} is set, scripts are compiled to bytecode instead and only interpreted if that fails.
+ */
+class ScriptCache {
+
+    private static final String METHOD_NAME = "run";
+    private static final Class[] PARAMETERS = {Object.class};
+
+    private final Map<Combination, Entry> entries = new ConcurrentHashMap<>();
+    private final InterpreterPool pool;
+    private final String defaultCode;
+    private volatile ScriptCompiler compiler;
+
+    /**
+     * @param pool        The {@link InterpreterPool} whose variables are visible to the scripts.
+     * @param defaultCode Code (e.g. imports) placed in front of every script. Line breaks are removed.
+     */
+    ScriptCache(InterpreterPool pool, String defaultCode) {
+        this.pool = pool;
+        this.defaultCode = defaultCode.replace('\n', ' ');
+    }
+
+    /**
+     * Executes the run script of a {@link Combination}, compiles it first if it is not cached or outdated.
+     *
+     * @param combination The {@link Combination}.
+     * @return The returned value of the script, or {@code null}.
+     * @throws EvalError If the script can not be parsed or fails while running in the interpreter.
+     * @throws Exception If the compiled script throws an exception.
+     */
+    Object invoke(Combination combination) throws Exception {
+        return invoke(combination, null);
+    }
+
+    /**
+     * Executes the run script of a {@link Combination}, compiles it first if it is not cached or outdated.
+     *
+     * @param combination The {@link Combination}.
+     * @param input       The value of the variable {@code input}, e.g. the result of the previous stage of a pipeline.
+     * @return The returned value of the script, or {@code null}.
+     * @throws EvalError If the script can not be parsed or fails while running in the interpreter.
+     * @throws Exception If the compiled script throws an exception.
+     */
+    Object invoke(Combination combination, Object input) throws Exception {
+        Entry entry = get(combination);
+        if (entry.compiled != null) return entry.compiled.run(input);
+
+        Interpreter interpreter = pool.acquire();
+        try {
+            Object[] arguments = {input != null ? input : Primitive.NULL};
+            return Primitive.unwrap(entry.method.invoke(arguments, interpreter));
+        } finally {
+            pool.release(interpreter);
+        }
+    }
+
+    /**
+     * @param combination The {@link Combination}.
+     * @return The compiled run script. Compiled again if the file has been modified or the combination has been
+     * set up again.
+     * @throws EvalError If the script can not be parsed.
+     */
+    private Entry get(Combination combination) throws EvalError {
+        Entry entry = entries.get(combination);
+        long modified = combination.getLastModified();
+        if (entry != null && entry.combination == combination && entry.modified != modified) {
+            combination.requireSetup(); //The file changed since it was compiled, read it again
+        }
+        int revision = combination.getRevision();
+
+        if (entry == null || entry.combination != combination || entry.modified != modified || entry.revision != revision) {
+            ScriptCompiler compiler = this.compiler;
+            CompiledScript compiled = compiler != null ? compiler.compile(combination) : null;
+            BshMethod method = compiled == null ? compile(combination.getRunScript()) : null;
+            entry = new Entry(combination, method, compiled, modified, revision);
+            entries.put(combination, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Parses a script into a method with the argument {@code input}. The default code and the method declaration are placed in
+     * the first line of the script, so reported line numbers are the lines of the script (and, as sections keep
+     * their line numbers, of the combination file).
+     *
+     * @param script The script.
+     * @return The parsed method.
+     * @throws EvalError If the script can not be parsed.
+     */
+    private BshMethod compile(String script) throws EvalError {
+        NameSpace namespace = new NameSpace(pool.getNameSpace(), "combination");
+        Interpreter interpreter = pool.acquire();
+        try {
+            interpreter.eval(defaultCode + METHOD_NAME + "(Object input) {" + script + "\n}", namespace);
+            return namespace.getMethod(METHOD_NAME, PARAMETERS);
+        } catch (UtilEvalError e) {
+            throw new ParseException("Could not find the compiled script: " + e.getMessage());
+        } finally {
+            pool.release(interpreter);
+        }
+    }
+
+    /**
+     * @param compiler The {@link ScriptCompiler} used for scripts compiled from now on, {@code null} to only use the
+     *                 interpreter.
+     */
+    void setCompiler(ScriptCompiler compiler) {
+        this.compiler = compiler;
+    }
+
+    /**
+     * Removes a {@link Combination} from the cache.
+     *
+     * @param combination The {@link Combination}.
+     */
+    void invalidate(Combination combination) {
+        entries.remove(combination);
+    }
+
+    /**
+     * Removes all compiled scripts.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * A compiled script (parsed by the interpreter or compiled to bytecode) and the state of the {@link Combination} it was compiled from.
+     */
+    private static class Entry {
+
+        private final Combination combination;
+        private final BshMethod method;
+        private final CompiledScript compiled;
+        private final long modified;
+        private final int revision;
+
+        private Entry(Combination combination, BshMethod method, CompiledScript compiled, long modified, int revision) {
+            this.combination = combination;
+            this.method = method;
+            this.compiled = compiled;
+            this.modified = modified;
+            this.revision = revision;
+        }
+    }
+}
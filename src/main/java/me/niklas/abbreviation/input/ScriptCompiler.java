@@ -0,0 +1,298 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.util.Combination;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles run scripts into classes extending {@link CompiledScript} using the {@link JavaCompiler} of the running
+ * JDK. A script which does not compile as a Java method body (e.g. because it uses loosely typed variables) is left
+ * to the interpreter.
+ * <p>
+ * The classes of a script are stored in {@link #DIRECTORY_NAME} next to its combination file, named by a hash of the
+ * script, so unchanged scripts are not compiled again after a restart. Format: amount of classes, then per class:
+ * name, length, bytecode.
+ */
+class ScriptCompiler {
+
+    static final String DIRECTORY_NAME = ".compiled";
+
+    private static final int VERSION = 2; //Part of the hash, change it when the generated source changes
+    private static final String PACKAGE = "me.niklas.abbreviation.compiled";
+    private static final String IMPORTS = "import java.util.*; import java.io.*; import java.net.*; ";
+    private static final String MISSING_RETURN = "compiler.err.missing.ret.stmt";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final Map<String, Object> bindings;
+    private final String defaultCode;
+
+    /**
+     * @param bindings    The variables visible to the scripts, see {@link CompiledScript}.
+     * @param defaultCode Code (e.g. imports) placed in front of every script. Line breaks are removed.
+     */
+    ScriptCompiler(Map<String, Object> bindings, String defaultCode) {
+        this.bindings = bindings;
+        this.defaultCode = defaultCode.replace('\n', ' ');
+        if (compiler == null) logger.warn("No Java compiler available (running on a JRE?), scripts are interpreted");
+    }
+
+    /**
+     * Compiles the run script of a {@link Combination} or loads it from the disk cache.
+     *
+     * @param combination The {@link Combination}.
+     * @return The compiled script with its variables set, or {@code null} if it can not be compiled.
+     */
+    CompiledScript compile(Combination combination) {
+        if (compiler == null) return null;
+
+        String script = combination.getRunScript();
+        String hash = hash(script);
+        String name = PACKAGE + ".Script" + hash;
+        File cache = combination.getFile() != null
+                ? new File(new File(combination.getFile().getParentFile(), DIRECTORY_NAME), hash + ".class") : null;
+
+        Map<String, byte[]> classes = cache != null ? read(cache) : null;
+        if (classes == null) {
+            classes = compile(name, script, combination.getName());
+            if (classes == null) return null;
+            if (cache != null) write(cache, classes);
+        }
+
+        try {
+            CompiledScript compiled = (CompiledScript) new ScriptLoader(classes).loadClass(name)
+                    .getDeclaredConstructor().newInstance();
+            compiled.bind(bindings, combination);
+            return compiled;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            logger.warn("Could not load the compiled script of " + combination.getName() + ": ", e);
+            if (cache != null && !cache.delete()) logger.debug("Could not delete " + cache.getName());
+            return null;
+        }
+    }
+
+    /**
+     * Compiles a script. If the compiler only complains about a missing return statement, {@code return null;} is
+     * appended to the script.
+     *
+     * @return The bytecode of all classes by binary name, or {@code null} if the script is not valid Java.
+     */
+    private Map<String, byte[]> compile(String name, String script, String combination) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, byte[]> classes = compile(name, source(name, script, false), diagnostics);
+        if (classes == null && isMissingReturn(diagnostics.getDiagnostics())) {
+            diagnostics = new DiagnosticCollector<>();
+            classes = compile(name, source(name, script, true), diagnostics);
+        }
+
+        if (classes == null) {
+            Diagnostic<? extends JavaFileObject> first = diagnostics.getDiagnostics().isEmpty() ? null : diagnostics.getDiagnostics().get(0);
+            logger.info("Interpreting " + combination + ", it is not valid Java"
+                    + (first != null ? " (Line " + first.getLineNumber() + ": " + first.getMessage(null) + ")" : ""));
+        }
+        return classes;
+    }
+
+    /**
+     * Runs the compiler in memory.
+     *
+     * @return The bytecode of all classes by binary name, or {@code null} if there were errors.
+     */
+    private Map<String, byte[]> compile(String name, String source, DiagnosticCollector<JavaFileObject> diagnostics) {
+        Map<String, byte[]> classes = new HashMap<>();
+        StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try (JavaFileManager files = new MemoryFileManager(standard, classes)) {
+            List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                    "-proc:none", "-g", "-nowarn");
+            JavaFileObject unit = new SourceFile(name, source);
+            Boolean success = compiler.getTask(null, files, diagnostics, options, null, Collections.singletonList(unit)).call();
+            return success ? classes : null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("The compiler failed: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * Generates the source of a script class. The script starts in the first line, so reported line numbers are the
+     * lines of the script.
+     */
+    private String source(String name, String script, boolean returnNull) {
+        int dot = name.lastIndexOf('.');
+        return "package " + name.substring(0, dot) + "; " + IMPORTS + defaultCode
+                + "public final class " + name.substring(dot + 1) + " extends " + CompiledScript.class.getName()
+                + " { @Override public Object run(Object input) throws Exception {" + script
+                + (returnNull ? "\nreturn null;" : "") + "\n}}";
+    }
+
+    private boolean isMissingReturn(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR && !MISSING_RETURN.equals(diagnostic.getCode())) return false;
+        }
+        return !diagnostics.isEmpty();
+    }
+
+    /**
+     * @return The hex encoded SHA-256 hash (first 16 bytes) of the script and everything else the source depends on.
+     */
+    private String hash(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((VERSION + "\n" + Runtime.version().feature() + "\n" + defaultCode + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                builder.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * @return The cached classes or {@code null} if the file does not exist or can not be read.
+     */
+    private Map<String, byte[]> read(File file) {
+        if (!file.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = in.readInt();
+            Map<String, byte[]> classes = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] bytecode = new byte[in.readInt()];
+                in.readFully(bytecode);
+                classes.put(name, bytecode);
+            }
+            return classes;
+        } catch (IOException | NegativeArraySizeException e) {
+            logger.info("Ignoring unreadable compiled script " + file.getName());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the classes of a script. Written to a temporary file first, so a crash never leaves a broken file.
+     */
+    private void write(File file, Map<String, byte[]> classes) {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.debug("Could not create " + directory);
+            return;
+        }
+        File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(classes.size());
+                for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not store the compiled script: ", e);
+            if (!temp.delete()) logger.debug("Could not delete " + temp.getName());
+        }
+    }
+
+    /**
+     * The source of a script, held in memory.
+     */
+    private static class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        private SourceFile(String name, String source) {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Collects the compiled classes in memory instead of writing them to disk.
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, byte[]> classes;
+
+        private MemoryFileManager(StandardJavaFileManager manager, Map<String, byte[]> classes) {
+            super(manager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("bytes:///" + name.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(name, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Defines the classes of a single script. Every script has its own loader, so replaced scripts can be unloaded.
+     */
+    private static class ScriptLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        private ScriptLoader(Map<String, byte[]> classes) {
+            super(CompiledScript.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytecode = classes.get(name);
+            if (bytecode == null) throw new ClassNotFoundException(name);
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package me.niklas.abbreviation.input;
+
+import bsh.Interpreter;
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.ExecutionStatus;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.InterpreterPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs scripts outside of the event threads, so a script which loops or blocks does not delay later events.
+ * Every script gets its own thread (a virtual thread if the runtime supports them). Scripts which exceed the
+ * timeout or are cancelled are interrupted; a script which ignores the interrupt keeps its thread, but its result
+ * is discarded. Its {@link Interpreter} is given up ({@link InterpreterPool#abandon(Thread)}), so the pool does not
+ * run dry. {@link EventType#EXECUTION_STATUS} is fired when a script starts and when it finishes.
+ */
+class ScriptExecutor {
+
+    /**
+     * The default timeout in seconds, can be changed using the system property {@code abbreviation.script.timeout}.
+     * 0 disables the timeout.
+     */
+    static final long DEFAULT_TIMEOUT = Long.getLong("abbreviation.script.timeout", 30);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final Set<Execution> running = ConcurrentHashMap.newKeySet();
+    private final EventManager events;
+    private final Consumer<Execution> listener;
+    private final InterpreterPool interpreters;
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private volatile long timeout = TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT);
+
+    /**
+     * @param events   The {@link EventManager} the status events are fired at.
+     * @param listener     Called once an execution has finished, before the status event is fired.
+     * @param interpreters The {@link InterpreterPool} the scripts use.
+     */
+    ScriptExecutor(EventManager events, Consumer<Execution> listener, InterpreterPool interpreters) {
+        this.events = events;
+        this.listener = listener;
+        this.interpreters = interpreters;
+        this.executor = createExecutor();
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ScriptTimeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return An executor starting a virtual thread per task (Java 21+), otherwise a cached pool of daemon threads.
+     */
+    private ExecutorService createExecutor() {
+        try {
+            //Looked up reflectively, the project is compiled for Java 11
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Virtual threads are not available, using platform threads");
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Combination-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a script. Returns immediately.
+     *
+     * @param combination  The {@link Combination} the script belongs to.
+     * @param controller   The index of the controller which typed the combination.
+     * @param after        An execution to wait for before the script starts, e.g. the previous stage of a pipeline.
+     *                     The timeout and the duration start afterwards. {@code null} to start immediately.
+     * @param script       The script, its returned value becomes the result. Throwing a
+     *                     {@link CancellationException} cancels the execution.
+     * @param intermediate Whether the script is a stage of a pipeline whose result is passed on.
+     * @return The {@link Execution} handle.
+     */
+    Execution submit(Combination combination, int controller, Execution after, Callable<Object> script,
+                     boolean intermediate) {
+        Execution execution = new Execution(this, combination, controller, intermediate);
+        running.add(execution);
+        events.fire(EventType.EXECUTION_STATUS, execution);
+
+        try {
+            execution.setFuture(executor.submit(() -> run(execution, after, script)));
+        } catch (RejectedExecutionException e) {
+            finish(execution, ExecutionStatus.FAILED, null, e);
+        }
+        return execution;
+    }
+
+    /**
+     * Runs a script on the thread of the execution, once the execution it has to wait for has finished.
+     */
+    private void run(Execution execution, Execution after, Callable<Object> script) {
+        if (execution.getStatus().isDone()) return; //Cancelled before it started
+        execution.setThread(Thread.currentThread());
+        try {
+            if (after != null) after.get(); //Throws a CancellationException if it did not complete
+            execution.start();
+            schedule(execution);
+            finish(execution, ExecutionStatus.COMPLETED, script.call(), null);
+        } catch (CancellationException e) { //e.g. the previous stage of a pipeline failed
+            stop(execution, ExecutionStatus.CANCELLED);
+        } catch (Exception e) {
+            finish(execution, ExecutionStatus.FAILED, null, e);
+        } finally {
+            execution.setThread(null);
+        }
+    }
+
+    /**
+     * Schedules the timeout of a started execution.
+     */
+    private void schedule(Execution execution) {
+        long millis = timeout;
+        if (millis <= 0) return;
+        Future<?> deadline = timer.schedule(() -> stop(execution, ExecutionStatus.TIMED_OUT), millis, TimeUnit.MILLISECONDS);
+        execution.setDeadline(deadline);
+        if (execution.getStatus().isDone()) deadline.cancel(false); //Finished while the deadline was scheduled
+    }
+
+    /**
+     * Finishes an execution and interrupts its script. The interpreter of the script is given up, as scripts
+     * usually ignore the interrupt.
+     *
+     * @param execution The {@link Execution}.
+     * @param status    {@link ExecutionStatus#CANCELLED} or {@link ExecutionStatus#TIMED_OUT}.
+     * @return Whether the execution was still running.
+     */
+    boolean stop(Execution execution, ExecutionStatus status) {
+        if (!finish(execution, status, null, null)) return false;
+        Future<?> future = execution.getFuture();
+        if (future != null) future.cancel(true);
+        Thread thread = execution.getThread();
+        if (thread != null) interpreters.abandon(thread); //If it finishes meanwhile, only a replacement is created
+        return true;
+    }
+
+    /**
+     * Sets the final state of an execution and notifies the listener and the subscribers.
+     *
+     * @return Whether the state was changed. {@code false} if the execution had already finished.
+     */
+    private boolean finish(Execution execution, ExecutionStatus status, Object result, Throwable error) {
+        if (!execution.finish(status, result, error)) return false;
+        running.remove(execution);
+        Future<?> deadline = execution.getDeadline();
+        if (deadline != null) deadline.cancel(false);
+
+        try {
+            listener.accept(execution);
+        } catch (Exception e) {
+            logger.error("An error occurred while handling the end of " + execution + ": ", e);
+        }
+        events.fire(EventType.EXECUTION_STATUS, execution);
+        return true;
+    }
+
+    /**
+     * Cancels the running scripts of a controller.
+     *
+     * @param controller The index of the controller, a negative number cancels the scripts of all controllers.
+     * @return The amount of cancelled executions.
+     */
+    int cancel(int controller) {
+        int cancelled = 0;
+        for (Execution execution : running) {
+            if ((controller < 0 || execution.getController() == controller) && stop(execution, ExecutionStatus.CANCELLED)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * @return The amount of scripts which have not finished yet.
+     */
+    int getRunning() {
+        return running.size();
+    }
+
+    /**
+     * @param millis The time after which a script is interrupted, 0 to let scripts run forever.
+     */
+    void setTimeout(long millis) {
+        this.timeout = millis;
+    }
+
+    /**
+     * Cancels all scripts and stops the threads. This action is NOT REVERSIBLE.
+     */
+    void shutdown() {
+        cancel(-1);
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+}
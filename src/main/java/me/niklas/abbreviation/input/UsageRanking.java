@@ -0,0 +1,176 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.util.Combination;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts how often combinations are used. Every use counts half as much after each {@link #HALF_LIFE}, so
+ * combinations used recently and often rank highest. Stored as {@link #FILE_NAME} in the combination directory.
+ * <p>
+ * The rank is the binary logarithm of the sum of {@code 2^t} over all uses, with {@code t} measured in half-lives.
+ * Decaying all counts by the same factor does not change their order, so a rank only has to be updated when the
+ * combination is used and never overflows.
+ * <p>
+ * Format (big endian): magic, version, amount of entries, then per entry: indices (amount + ordinals as bytes), rank.
+ */
+class UsageRanking {
+
+    static final String FILE_NAME = ".usage";
+    static final long HALF_LIFE = 7L * 24 * 60 * 60 * 1000; //One week
+
+    private static final int MAGIC = 0x41425553; //ABUS
+    private static final int VERSION = 1;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final Map<String, Double> ranks = new ConcurrentHashMap<>();
+    private final long halfLife;
+    private volatile boolean changed = false;
+
+    UsageRanking() {
+        this(HALF_LIFE);
+    }
+
+    /**
+     * @param halfLife The time in milliseconds after which a use counts half as much.
+     */
+    UsageRanking(long halfLife) {
+        this.halfLife = halfLife;
+    }
+
+    /**
+     * @param combination The {@link Combination}.
+     * @return Its rank, {@link Double#NEGATIVE_INFINITY} if it has never been used.
+     */
+    double getRank(Combination combination) {
+        return ranks.getOrDefault(key(combination.getIndices()), Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * @param combination The {@link Combination}.
+     * @param time        The time in milliseconds.
+     * @return The decayed amount of uses at the given time.
+     */
+    double getCount(Combination combination, long time) {
+        return Math.pow(2, getRank(combination) - (double) time / halfLife);
+    }
+
+    /**
+     * Counts a use of a combination.
+     *
+     * @param combination The {@link Combination}.
+     * @param time        The time of the use in milliseconds.
+     */
+    void use(Combination combination, long time) {
+        double now = (double) time / halfLife;
+        ranks.merge(key(combination.getIndices()), now, (rank, use) -> {
+            //log2(2^rank + 2^use), without leaving the range of a double
+            double high = Math.max(rank, use);
+            return high + Math.log1p(Math.pow(2, -Math.abs(rank - use))) / Math.log(2);
+        });
+        changed = true;
+    }
+
+    /**
+     * Removes the uses of all combinations.
+     */
+    void clear() {
+        ranks.clear();
+        changed = true;
+    }
+
+    /**
+     * Replaces the ranks with the stored ones of a directory.
+     *
+     * @param directory The combination directory.
+     */
+    void read(File directory) {
+        ranks.clear();
+        changed = false;
+        File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) return;
+
+        GamepadInput[] values = GamepadInput.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.info("Ignoring usage file of an unknown format");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                GamepadInput[] indices = new GamepadInput[in.readUnsignedByte()];
+                for (int j = 0; j < indices.length; j++) {
+                    indices[j] = values[in.readUnsignedByte()];
+                }
+                ranks.put(key(indices), in.readDouble());
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            logger.warn("Could not read the usage file: " + e);
+            ranks.clear();
+        }
+    }
+
+    /**
+     * Writes the ranks to a directory if they changed since they have been read or written. The old file is
+     * replaced atomically.
+     *
+     * @param directory The combination directory.
+     */
+    synchronized void write(File directory) {
+        if (!changed) return;
+        changed = false;
+        Map<String, Double> copy = new HashMap<>(ranks);
+
+        File temp = new File(directory, FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(copy.size());
+            for (Map.Entry<String, Double> entry : copy.entrySet()) {
+                String key = entry.getKey();
+                out.writeByte(key.length());
+                for (int i = 0; i < key.length(); i++) {
+                    out.writeByte(key.charAt(i));
+                }
+                out.writeDouble(entry.getValue());
+            }
+        } catch (IOException e) {
+            logger.error("Could not write the usage file: ", e);
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), new File(directory, FILE_NAME).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not replace the usage file: ", e);
+        }
+    }
+
+    /**
+     * @param indices The input of a combination.
+     * @return A key with one character per input (its ordinal).
+     */
+    private static String key(GamepadInput[] indices) {
+        char[] chars = new char[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            chars[i] = (char) indices[i].ordinal();
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,42 @@
+package me.niklas.abbreviation.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single combination, kept across reloads.
+ */
+public class CombinationStats {
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder evalNanos = new LongAdder();
+
+    /**
+     * Counts an invocation.
+     *
+     * @param nanos   The duration of the run script in nanoseconds.
+     * @param success Whether the run script completed without an error.
+     */
+    void record(long nanos, boolean success) {
+        invocations.increment();
+        if (!success) failures.increment();
+        evalNanos.add(nanos);
+    }
+
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getEvalMicros() {
+        return evalNanos.sum() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("invocations=%d failures=%d eval=%dus", getInvocations(), getFailures(), getEvalMicros());
+    }
+}
@@ -0,0 +1,107 @@
+package me.niklas.abbreviation.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, similar to HdrHistogram: every power of two is split into
+ * {@link #SUB_BUCKETS} linear buckets, so every recorded value is precise to about 6%. Recording does not allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value A value, at least 0.
+     * @return The index of its bucket.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param bucket The index of a bucket.
+     * @return The highest value counted in it.
+     */
+    static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds. Negative durations are recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            //Another thread recorded a value at the same time, try again
+        }
+    }
+
+    /**
+     * Removes all recorded values. Values recorded at the same time may be lost partially.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @return The amount of recorded values.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return A copy of the current state.
+     */
+    public LatencySnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        double mean = total > 0 ? (double) sum.get() / total : 0;
+        return new LatencySnapshot(total, mean, percentile(copy, total, 0.5), percentile(copy, total, 0.9),
+                percentile(copy, total, 0.99), max.get());
+    }
+
+    /**
+     * @return The highest value of the bucket in which the percentile lies.
+     */
+    private static long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return highestOf(i);
+        }
+        return highestOf(counts.length - 1);
+    }
+}
@@ -0,0 +1,52 @@
+package me.niklas.abbreviation.metrics;
+
+/**
+ * The state of a {@link LatencyHistogram} at a point in time. All durations are in microseconds.
+ */
+public class LatencySnapshot {
+
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+
+    LatencySnapshot(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+        this.count = count;
+        this.mean = meanNanos / 1000;
+        this.p50 = p50Nanos / 1000;
+        this.p90 = p90Nanos / 1000;
+        this.p99 = p99Nanos / 1000;
+        this.max = maxNanos / 1000;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return mean;
+    }
+
+    public long getP50Micros() {
+        return p50;
+    }
+
+    public long getP90Micros() {
+        return p90;
+    }
+
+    public long getP99Micros() {
+        return p99;
+    }
+
+    public long getMaxMicros() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%dus p90=%dus p99=%dus max=%dus", count, mean, p50, p90, p99, max);
+    }
+}
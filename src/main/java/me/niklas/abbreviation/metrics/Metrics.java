@@ -0,0 +1,187 @@
+package me.niklas.abbreviation.metrics;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.enums.Stage;
+import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.util.Combination;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the latency of every {@link Stage} and counters per combination. Recording is static, lock-free and
+ * does not allocate, so it can be used on the hot path. {@link #start()} exposes the metrics through JMX and logs
+ * them periodically (every {@code abbreviation.metrics.interval} seconds, default 60, 0 disables the log).
+ */
+public final class Metrics implements MetricsMXBean, EventSubscriber {
+
+    /**
+     * The name of the MXBean.
+     */
+    public static final String OBJECT_NAME = "me.niklas.abbreviation:type=Metrics";
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Stage[] EVENT_STAGES = new Stage[EventType.values().length];
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[STAGES.length];
+    private static final Map<String, CombinationStats> COMBINATIONS = new ConcurrentHashMap<>(); //By readable input
+    private static final Metrics INSTANCE = new Metrics();
+
+    static {
+        for (EventType type : EventType.values()) {
+            EVENT_STAGES[type.ordinal()] = Stage.forEvent(type);
+        }
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private ScheduledExecutorService dumper;
+    private ObjectName name;
+
+    private Metrics() {
+    }
+
+    /**
+     * @return The only instance.
+     */
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the duration of a stage.
+     *
+     * @param stage The {@link Stage}.
+     * @param nanos The duration in nanoseconds.
+     */
+    public static void record(Stage stage, long nanos) {
+        HISTOGRAMS[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records the time between firing an event and handling it, if this is a measured {@link Stage}.
+     *
+     * @param type  The {@link EventType} of the event.
+     * @param nanos The duration in nanoseconds.
+     * @see Stage#forEvent(EventType)
+     */
+    public static void record(EventType type, long nanos) {
+        Stage stage = EVENT_STAGES[type.ordinal()];
+        if (stage != null) record(stage, nanos);
+    }
+
+    /**
+     * Counts the invocation of a combination.
+     *
+     * @param combination The {@link Combination}. Counted together with any other one with the same input.
+     * @param nanos       The duration of the run script in nanoseconds.
+     * @param success     Whether the run script completed without an error.
+     */
+    public static void recordInvocation(Combination combination, long nanos, boolean success) {
+        record(Stage.SCRIPT_EVAL, nanos);
+        String input = GamepadInput.toReadable(combination.getIndices()); //Does not keep the combination alive
+        COMBINATIONS.computeIfAbsent(input, key -> new CombinationStats()).record(nanos, success);
+    }
+
+    /**
+     * @param stage The {@link Stage}.
+     * @return The current latencies of the stage.
+     */
+    public static LatencySnapshot snapshot(Stage stage) {
+        return HISTOGRAMS[stage.ordinal()].snapshot();
+    }
+
+    /**
+     * Registers the MXBean and starts the periodic log. Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (dumper != null) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) server.registerMBean(this, name);
+        } catch (JMException e) {
+            logger.error("Could not register the metrics MXBean: ", e);
+        }
+
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Long.getLong("abbreviation.metrics.interval", 60);
+        if (interval > 0) dumper.scheduleAtFixedRate(this::dump, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Logs all stages and combinations which have recorded something.
+     */
+    public void dump() {
+        for (Map.Entry<String, LatencySnapshot> entry : getLatencies().entrySet()) {
+            if (entry.getValue().getCount() > 0) logger.info(entry.getKey() + ": " + entry.getValue());
+        }
+        for (Map.Entry<String, CombinationStats> entry : getCombinations().entrySet()) {
+            logger.info("Combination " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    @Override
+    public Map<String, LatencySnapshot> getLatencies() {
+        Map<String, LatencySnapshot> result = new LinkedHashMap<>();
+        for (Stage stage : STAGES) {
+            result.put(stage.name(), snapshot(stage));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, CombinationStats> getCombinations() {
+        return new TreeMap<>(COMBINATIONS);
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        COMBINATIONS.clear();
+    }
+
+    /**
+     * Has to be implemented, but unused.
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEvent(EventType type, Object param) { //The class does not receive any standard events, only the exit event.
+    }
+
+    /**
+     * Logs the metrics a last time, stops the periodic log and unregisters the MXBean.
+     */
+    @Override
+    public synchronized void onExit() {
+        if (dumper == null) return;
+        dump();
+        dumper.shutdownNow();
+        dumper = null;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException e) {
+            logger.debug("Could not unregister the metrics MXBean: " + e.getMessage());
+        }
+    }
+}
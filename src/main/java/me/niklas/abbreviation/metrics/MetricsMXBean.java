@@ -0,0 +1,24 @@
+package me.niklas.abbreviation.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics as seen by JMX clients (e.g. JConsole), registered as {@link Metrics#OBJECT_NAME}.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return The latencies of every {@link me.niklas.abbreviation.enums.Stage}, by name.
+     */
+    Map<String, LatencySnapshot> getLatencies();
+
+    /**
+     * @return The counters of every invoked combination, by input.
+     */
+    Map<String, CombinationStats> getCombinations();
+
+    /**
+     * Removes all recorded latencies and counters.
+     */
+    void reset();
+}
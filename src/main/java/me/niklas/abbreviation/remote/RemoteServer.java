@@ -0,0 +1,364 @@
+package me.niklas.abbreviation.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.InputSequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small HTTP server on the loopback interface which lets other local programs trigger combinations. Every request
+ * is turned into the event a gamepad would cause:
+ * <ul>
+ * <li>{@code POST /run?input=2-5&controller=0} fires RUN_COMBINATION (input written like a file name)</li>
+ * <li>{@code POST /edit?input=2-5} fires EDIT_COMBINATION</li>
+ * <li>{@code POST /preview?input=2} fires SHOW_PREVIEW</li>
+ * <li>{@code POST /reload} fires RELOAD (the current directory is reloaded)</li>
+ * <li>{@code POST /cancel?controller=0} fires CANCEL_EXECUTION (without controller: all)</li>
+ * <li>{@code POST /batch} fires one event per line of the body, e.g. {@code run 2-5 1} or {@code reload}.
+ * Nothing is fired if a line is invalid.</li>
+ * </ul>
+ * Events are fired asynchronously, the server answers with 202 once they are queued. Connections are kept alive,
+ * so clients can send further (also pipelined) requests on the same connection.
+ * <p>
+ * Every request has to send the token of the current start in the {@link #TOKEN_HEADER} header. The token is
+ * written to {@link #TOKEN_FILE} in the home directory, readable only by the user. Requests with an {@code Origin}
+ * header or with another {@code Host} than the loopback address are rejected, so web pages (also using DNS
+ * rebinding) can not trigger combinations.
+ */
+public class RemoteServer implements EventSubscriber {
+
+    /**
+     * The header carrying the token.
+     */
+    public static final String TOKEN_HEADER = "X-Abbreviation-Token";
+    /**
+     * The name of the file the token is written to.
+     */
+    public static final String TOKEN_FILE = ".abbreviation-remote-token";
+
+    private static final int MAX_BODY = 1 << 20;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final EventManager events;
+    private final File tokenFile;
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile byte[] token;
+
+    /**
+     * @param events The {@link EventManager} the requested events are fired at.
+     */
+    public RemoteServer(EventManager events) {
+        this(events, new File(System.getProperty("user.home"), TOKEN_FILE));
+    }
+
+    /**
+     * @param events    The {@link EventManager} the requested events are fired at.
+     * @param tokenFile The file the token is written to.
+     */
+    public RemoteServer(EventManager events, File tokenFile) {
+        this.events = events;
+        this.tokenFile = tokenFile;
+    }
+
+    /**
+     * Starts the server on the loopback interface.
+     *
+     * @param port The port, 0 for any free port.
+     * @throws IOException If the token can not be written or the port can not be bound.
+     */
+    public synchronized void start(int port) throws IOException {
+        if (server != null) return;
+        String secret = createToken();
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "RemoteServer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        token = secret.getBytes(StandardCharsets.US_ASCII);
+        logger.info("Listening on " + server.getAddress() + ", token in " + tokenFile);
+    }
+
+    /**
+     * Creates a random token and writes it to the token file, which only the user can read.
+     *
+     * @return The token.
+     */
+    private String createToken() throws IOException {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder builder = new StringBuilder(random.length * 2);
+        for (byte b : random) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        Path path = tokenFile.toPath();
+        Files.deleteIfExists(path); //Permissions are only set on creation
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(path); //The home directory is private on Windows
+        }
+        Files.write(path, builder.toString().getBytes(StandardCharsets.US_ASCII));
+        return builder.toString();
+    }
+
+    /**
+     * @return The token of the current start, {@code null} if the server is not running.
+     */
+    public String getToken() {
+        byte[] current = token;
+        return current != null ? new String(current, StandardCharsets.US_ASCII) : null;
+    }
+
+    /**
+     * @return The port the server is listening on, -1 if it is not running.
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    /**
+     * Stops the server. Requests which are being handled are completed.
+     */
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(0);
+        executor.shutdown();
+        server = null;
+        token = null;
+        if (!tokenFile.delete()) logger.debug("Could not delete " + tokenFile);
+    }
+
+    /**
+     * @param exchange A request.
+     * @return Why the request is not allowed, {@code null} if it is.
+     */
+    private String reject(HttpExchange exchange) {
+        if (exchange.getRequestHeaders().containsKey("Origin")) return "Requests from web pages are not allowed";
+
+        int port = exchange.getLocalAddress().getPort();
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (!("localhost:" + port).equals(host) && !("127.0.0.1:" + port).equals(host) && !("[::1]:" + port).equals(host)) {
+            return "Invalid host";
+        }
+
+        byte[] expected = token;
+        String sent = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        if (expected == null || sent == null || !MessageDigest.isEqual(expected, sent.getBytes(StandardCharsets.US_ASCII))) {
+            return "Invalid token";
+        }
+        return null;
+    }
+
+    /**
+     * Handles a single request.
+     *
+     * @param exchange The request and its response.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String action = path.startsWith("/") ? path.substring(1) : path;
+            String rejected = reject(exchange);
+            if (rejected != null) {
+                respond(exchange, 403, rejected);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Only POST is supported");
+                return;
+            }
+
+            List<Command> commands = new ArrayList<>();
+            if (action.equals("batch")) {
+                String body = new String(readBody(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                String[] lines = body.split("\r?\n");
+                for (int i = 0; i < lines.length; i++) {
+                    String line = lines[i].trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    try {
+                        commands.add(parseLine(line));
+                    } catch (IllegalArgumentException e) {
+                        respond(exchange, 400, "Line " + (i + 1) + ": " + e.getMessage());
+                        return;
+                    }
+                }
+            } else {
+                readBody(exchange.getRequestBody()); //Drain it, the connection is reused
+                commands.add(parse(action, parseQuery(exchange.getRequestURI().getRawQuery())));
+            }
+
+            for (Command command : commands) {
+                events.fire(command.type, command.param);
+            }
+            respond(exchange, 202, "Accepted " + commands.size());
+        } catch (UnknownActionException e) {
+            respond(exchange, 404, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Parses a line of a batch request: the action followed by its arguments, separated by spaces.
+     * {@code run|edit|preview <input> [controller]}, {@code reload} or {@code cancel [controller]}.
+     *
+     * @param line The line.
+     * @return The command.
+     * @throws IllegalArgumentException If the line is invalid.
+     */
+    Command parseLine(String line) {
+        String[] parts = line.split("\\s+", 2);
+        String rest = parts.length > 1 ? parts[1].trim() : "";
+        String[] arguments = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+        Map<String, String> params = new HashMap<>();
+
+        if (parts[0].equals("cancel")) {
+            if (arguments.length > 0) params.put("controller", arguments[0]);
+        } else {
+            if (arguments.length > 0) params.put("input", arguments[0]);
+            if (arguments.length > 1) params.put("controller", arguments[1]);
+        }
+        return parse(parts[0], params);
+    }
+
+    /**
+     * @param action The action, e.g. "run".
+     * @param params The parameters of the action.
+     * @return The command.
+     * @throws IllegalArgumentException If a parameter is missing or invalid.
+     * @throws UnknownActionException   If the action does not exist.
+     */
+    Command parse(String action, Map<String, String> params) {
+        if (action.equals("run")) {
+            return new Command(EventType.RUN_COMBINATION, parseSequence(params));
+        } else if (action.equals("edit")) {
+            return new Command(EventType.EDIT_COMBINATION, parseSequence(params));
+        } else if (action.equals("preview")) {
+            return new Command(EventType.SHOW_PREVIEW, parseSequence(params));
+        } else if (action.equals("reload")) {
+            return new Command(EventType.RELOAD, null); //Never another directory, it would run its scripts
+        } else if (action.equals("cancel")) {
+            return new Command(EventType.CANCEL_EXECUTION, params.containsKey("controller") ? parseController(params) : null);
+        }
+        throw new UnknownActionException("Unknown action: " + action);
+    }
+
+    private InputSequence parseSequence(Map<String, String> params) {
+        String input = params.get("input");
+        if (input == null) throw new IllegalArgumentException("Missing input");
+        GamepadInput[] inputs = Combination.getInputForFile(new File(input));
+        if (inputs == null) throw new IllegalArgumentException("Invalid input: " + input);
+        return new InputSequence(params.containsKey("controller") ? parseController(params) : 0, inputs);
+    }
+
+    private int parseController(Map<String, String> params) {
+        try {
+            int controller = Integer.parseInt(params.get("controller"));
+            if (controller >= 0) return controller;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid controller: " + params.get("controller"));
+    }
+
+    /**
+     * @param query The raw query of a request, may be {@code null}.
+     * @return The decoded parameters.
+     */
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private byte[] readBody(InputStream body) throws IOException {
+        byte[] bytes = body.readNBytes(MAX_BODY);
+        if (body.read() != -1) throw new IllegalArgumentException("The body is too large");
+        return bytes;
+    }
+
+    private void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void onEvent(EventType type, Object param) { //The class does not receive any standard events, only the exit event.
+    }
+
+    @Override
+    public void onExit() {
+        stop();
+    }
+
+    /**
+     * An event requested by a client.
+     */
+    static final class Command {
+
+        final EventType type;
+        final Object param;
+
+        private Command(EventType type, Object param) {
+            this.type = type;
+            this.param = param;
+        }
+    }
+
+    /**
+     * Thrown if a request names an action which does not exist.
+     */
+    private static class UnknownActionException extends IllegalArgumentException {
+
+        private UnknownActionException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package me.niklas.abbreviation.util;
 
-import bsh.Interpreter;
 import me.niklas.abbreviation.enums.GamepadInput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -14,6 +17,20 @@ import java.util.Objects;
  */
 public class Combination {
 
+    /**
+     * Starts the file names of combinations which are written with {@link #DIGITS}, e.g. {@code _25o.txt}.
+     * File names without it are read as ordinals separated by '-' (e.g. {@code 2-5-24.txt}).
+     */
+    public static final char COMPACT_PREFIX = '_';
+    /**
+     * The digits of compact file names, one per input (the digit at the ordinal of the input).
+     */
+    private static final String DIGITS = "0123456789abcdefghijklmnopqrstuv";
+    /**
+     * A line of the {@code :pipe} section which lets the stages run in parallel.
+     */
+    public static final String PARALLEL = "parallel";
+
     private final File file;
     private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
     private String name;
@@ -21,16 +38,38 @@ public class Combination {
     private boolean valid;
     private String initScript = "";
     private String runScript = "";
-    private boolean requiresSetup = true;
+    private Map<String, String> sections = Collections.emptyMap();
+    private volatile boolean requiresSetup = true;
+    private volatile int revision = 0;
+    private boolean settingUp = false;
+    private long readModified = 0;
+    private long readSize = 0;
 
     /**
      * @param file The {@link File} which should be read.
      */
     public Combination(File file) {
+        this(file, false);
+    }
+
+    /**
+     * @param file The {@link File} which should be read.
+     * @param lazy Whether only the indices should be read (from the file name). The file itself is read when the
+     *             combination is used for the first time or {@link #load()} is called.
+     */
+    public Combination(File file, boolean lazy) {
         Objects.requireNonNull(file);
         this.file = file;
 
-        setup();
+        if (!lazy) {
+            setup();
+        } else if (!isFileValid() || !readIndices()) {
+            valid = false;
+            indices = new GamepadInput[0];
+            requiresSetup = false;
+        } else {
+            valid = true;
+        }
     }
 
     /**
@@ -55,13 +94,51 @@ public class Combination {
         executeInitScript();
     }
 
+    /**
+     * Restores a combination which has been read before (e.g. from a snapshot). The init script is not executed
+     * again, its result (the name) is restored instead.
+     *
+     * @param file       The {@link File} the combination was read from.
+     * @param indices    The indices read from the file name.
+     * @param name     The name set by the init script or {@code null}.
+     * @param sections The sections of the file, as returned by {@link CombinationParser}.
+     * @param modified The modification stamp of the file when it was read.
+     * @param size     The size of the file when it was read.
+     */
+    public Combination(File file, GamepadInput[] indices, String name, Map<String, String> sections, long modified, long size) {
+        this.file = Objects.requireNonNull(file);
+        this.indices = Objects.requireNonNull(indices);
+        this.name = name;
+        this.sections = sections;
+        this.initScript = sections.getOrDefault(CombinationParser.INIT, "");
+        this.runScript = sections.getOrDefault(CombinationParser.RUN, "");
+        this.readModified = modified;
+        this.readSize = size;
+        this.valid = true;
+        this.requiresSetup = false;
+    }
+
     /**
      * Generates a file name based on {@link GamepadInput}s.
      *
      * @param inputs The {@link GamepadInput}s.
+     * @return A qualified file name: {@link #COMPACT_PREFIX} followed by one of the {@link #DIGITS} per input.
+     */
+    public static String getFileNameForInputs(GamepadInput[] inputs) {
+        StringBuilder builder = new StringBuilder(inputs.length + 5).append(COMPACT_PREFIX);
+        for (GamepadInput input : inputs) {
+            builder.append(DIGITS.charAt(input.ordinal()));
+        }
+        return builder.append(".txt").toString();
+    }
+
+    /**
+     * Generates a file name as used before compact file names.
+     *
+     * @param inputs The {@link GamepadInput}s.
      * @return A qualified file name. Based on the index of the {@link GamepadInput}, separated by a '-'.
      */
-    private static String getFileNameForInputs(GamepadInput[] inputs) {
+    private static String getLegacyFileNameForInputs(GamepadInput[] inputs) {
         StringBuilder builder = new StringBuilder();
         for (GamepadInput input : inputs) {
             builder.append(input.ordinal()).append("-");
@@ -76,10 +153,14 @@ public class Combination {
      * @return The combination file.
      * @see #getFileNameForInputs(GamepadInput[])
      * <p>
-     * Returns a file according to the {@link GamepadInput}s of a combination.
+     * Returns a file according to the {@link GamepadInput}s of a combination. Existing files with a legacy name
+     * are kept, new files get a compact name.
      */
     private static File getFileForInput(GamepadInput[] inputs, File directory) {
-        return new File(directory.getAbsolutePath() + File.separatorChar + getFileNameForInputs(inputs));
+        File file = new File(directory.getAbsoluteFile(), getFileNameForInputs(inputs));
+        if (file.exists() || inputs.length == 0) return file;
+        File legacy = new File(directory.getAbsoluteFile(), getLegacyFileNameForInputs(inputs));
+        return legacy.exists() ? legacy : file;
     }
 
     /**
@@ -97,10 +178,12 @@ public class Combination {
 
     /**
      * Sets up the class. Reads in the file and executes the init script.
+     * Other threads using the combination meanwhile wait until the setup is done.
      */
-    private void setup() {
-        if (!requiresSetup) return;
-        requiresSetup = false;
+    private synchronized void setup() {
+        if (!requiresSetup || settingUp) return; //Already done or called by the init script
+        settingUp = true;
+        int startRevision = revision;
         try {
             if (!isFileValid() || !readIndices()) {
                 valid = false;
@@ -108,75 +191,125 @@ public class Combination {
                 return;
             }
 
-            readScript();
-        } catch (Exception e) {
-            logger.error("An error occurred while reading from combination file: ", e);
+            try {
+                initScript = "";
+                runScript = "";
+                sections = Collections.emptyMap();
+                readModified = file.lastModified(); //Before reading: a change while reading leads to a newer stamp
+                readSize = file.length();
+                readScript();
+            } catch (Exception e) {
+                logger.error("An error occurred while reading from combination file: ", e);
+            }
+
+            executeInitScript();
+
+            valid = true;
+        } finally {
+            settingUp = false;
+            if (revision == startRevision) requiresSetup = false;
         }
+    }
 
-        executeInitScript();
+    /**
+     * Reads the file and executes the init script, unless this has already been done.
+     */
+    public void load() {
+        if (requiresSetup) setup();
+    }
 
-        valid = true;
+    /**
+     * @return Whether the file has been read (always {@code true} for prefabricated combinations).
+     */
+    public boolean isLoaded() {
+        return !requiresSetup;
     }
 
     /**
      * Read in the file content and parse it.
      *
      * @throws IOException If an error occurs while reading in the file.
+     * @see CombinationParser
      */
     private void readScript() throws IOException {
-        //Read scripts
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)))) {
-            StringBuilder tmp = new StringBuilder();
-            String line;
-            boolean inRunScriptPart = true; //False -> In init script. True -> In run script
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.startsWith("//")) continue; //Skip comments
-                if (line.startsWith(":")) {
-                    if (line.startsWith(":init")) {
-                        runScript += tmp.toString();
-                        tmp.setLength(0);
-                        inRunScriptPart = false;
-                    } else if (line.startsWith(":run")) {
-                        initScript += tmp.toString();
-                        tmp.setLength(0);
-                        inRunScriptPart = true;
-                    }
-                } else {
-                    tmp.append(line).append('\n');
-                }
-            }
-            if (tmp.length() > 0) { //Something is stored -> Add to runScript or initScript part
-                if (inRunScriptPart) {
-                    runScript += tmp;
-                } else {
-                    initScript += tmp;
-                }
-            }
-        }
+        sections = CombinationParser.parse(file);
+        initScript = sections.getOrDefault(CombinationParser.INIT, "");
+        runScript = sections.getOrDefault(CombinationParser.RUN, "");
     }
 
     /**
      * @return Whether the indices were successfully read from the file name.
      */
     private boolean readIndices() {
-        String name = file.getName().substring(0, file.getName().lastIndexOf("."));
-        String[] strings = name.split("-"); //Split up into the indices
-        int[] numbers = new int[strings.length];
-        for (int i = 0; i < strings.length; i++) { //Convert the strings to integers
-            try {
-                numbers[i] = Integer.valueOf(strings[i]);
-            } catch (NumberFormatException e) {
-                logger.error("Could not format number: " + e);
-                return false;
-            }
+        indices = getInputForFile(file);
+        if (indices == null) {
+            logger.error("Could not read the input from the file name " + file.getName());
+            return false;
         }
-        //Convert the integers to GamepadInputs
-        indices = GamepadInput.toGamepadInputs(numbers);
         return true;
     }
 
+    /**
+     * Reads the {@link GamepadInput}s from a file name (e.g. _245.txt or the legacy 2-4-5.txt). The file does not
+     * have to exist.
+     *
+     * @param file The {@link File}.
+     * @return The {@link GamepadInput}s or {@code null} if the name is not a valid combination file name.
+     * @see #getFileNameForInputs(GamepadInput[])
+     */
+    public static GamepadInput[] getInputForFile(File file) {
+        String name = file.getName();
+        int end = name.lastIndexOf('.');
+        if (end < 0) end = name.length();
+        if (end > 0 && name.charAt(0) == COMPACT_PREFIX) return getInputForCompactName(name, end);
+
+        //Count the numbers first, so that the result can be filled in place
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (name.charAt(i) == '-') count++;
+        }
+        if (end > 0 && name.charAt(end - 1) == '-') count--; //Trailing separator
+        if (end == 0 || count == 0) return null;
+
+        GamepadInput[] result = new GamepadInput[count];
+        int index = 0;
+        int number = 0;
+        int digits = 0;
+        for (int i = 0; i <= end; i++) {
+            char c = i < end ? name.charAt(i) : '-';
+            if (c >= '0' && c <= '9') {
+                if (++digits > 9) return null; //Would overflow
+                number = number * 10 + (c - '0');
+            } else if (c == '-' && digits > 0) {
+                result[index++] = GamepadInput.valueOf(number);
+                number = 0;
+                digits = 0;
+            } else if (c != '-' || i != end) {
+                return null; //Invalid character or empty number
+            }
+        }
+        return index == count ? result : null;
+    }
+
+    /**
+     * Reads the {@link GamepadInput}s from a compact file name.
+     *
+     * @param name The file name, starting with {@link #COMPACT_PREFIX}.
+     * @param end  The index of the extension.
+     * @return The {@link GamepadInput}s or {@code null} if the name contains an invalid digit or no input.
+     */
+    private static GamepadInput[] getInputForCompactName(String name, int end) {
+        if (end <= 1) return null;
+        GamepadInput[] values = GamepadInput.values();
+        GamepadInput[] result = new GamepadInput[end - 1];
+        for (int i = 1; i < end; i++) {
+            int ordinal = DIGITS.indexOf(Character.toLowerCase(name.charAt(i))); //Case insensitive file systems
+            if (ordinal < 0 || ordinal >= values.length) return null;
+            result[i - 1] = values[ordinal];
+        }
+        return result;
+    }
+
     /**
      * @return Whether the file is valid.
      */
@@ -213,10 +346,8 @@ public class Combination {
      * <i>Can</i>, but should not be called multiple times.
      */
     private void executeInitScript() {
-        Interpreter interpreter = new Interpreter();
         try {
-            interpreter.set("combination", this);
-            interpreter.eval(initScript);
+            InterpreterPool.getShared().eval(initScript, "combination", this);
         } catch (Exception e) {
             logger.error("An error occurred while running the init script: ", e);
         }
@@ -277,7 +408,12 @@ public class Combination {
      * @return Whether this combination is empty
      */
     public boolean isEmptyCombination() {
-        return valid && initScript.trim().length() == 0 && runScript.trim().length() == 0;
+        if (requiresSetup) setup();
+        if (!valid || !initScript.isBlank() || !runScript.isBlank()) return false;
+        for (String section : sections.values()) {
+            if (!section.isBlank()) return false;
+        }
+        return true;
     }
 
     /**
@@ -285,6 +421,22 @@ public class Combination {
      */
     public void requireSetup() {
         requiresSetup = true;
+        revision++;
+    }
+
+    /**
+     * @return A counter which changes every time {@link #requireSetup()} is called. Used to detect outdated
+     * compiled scripts.
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return The modification stamp of the {@link #file}, 0 for prefabricated combinations or missing files.
+     */
+    public long getLastModified() {
+        return file != null ? file.lastModified() : 0;
     }
 
     /**
@@ -338,6 +490,74 @@ public class Combination {
         return runScript;
     }
 
+    /**
+     * @param name The name of a section, e.g. "preview" for the lines following {@code :preview}.
+     * @return The text of the section (with the line numbers of the file) or an empty string.
+     */
+    public String getSection(String name) {
+        if (requiresSetup) setup();
+        return sections.getOrDefault(name, "");
+    }
+
+    /**
+     * @return The inputs of the combinations listed in the {@code :pipe} section (one per line, like a file name,
+     * e.g. 2-5). When this combination is run, they are run afterwards, each one receiving the result of the previous
+     * one as {@code input}, unless they are {@link #isParallel()}. Invalid lines are skipped.
+     */
+    public List<GamepadInput[]> getPipeline() {
+        List<GamepadInput[]> stages = new ArrayList<>();
+        for (String line : getSection(CombinationParser.PIPE).split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.equals(PARALLEL)) continue;
+
+            GamepadInput[] stage = getInputForFile(new File(line));
+            if (stage != null) stages.add(stage);
+            else logger.warn("Invalid stage in the pipe section of " + getName() + ": " + line);
+        }
+        return stages;
+    }
+
+    /**
+     * @return Whether the {@code :pipe} section contains a {@value #PARALLEL} line: this combination and the ones
+     * listed are started at once and do not receive any {@code input}.
+     */
+    public boolean isParallel() {
+        for (String line : getSection(CombinationParser.PIPE).split("\n")) {
+            if (line.trim().equals(PARALLEL)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return All sections read from the file, by name. Empty for prefabricated combinations.
+     */
+    public Map<String, String> getSections() {
+        if (requiresSetup) setup();
+        return Collections.unmodifiableMap(sections);
+    }
+
+    /**
+     * @return The init script which is executed when the combination is set up.
+     */
+    public String getInitScript() {
+        if (requiresSetup) setup();
+        return initScript;
+    }
+
+    /**
+     * @return The modification stamp of the {@link #file} when it was read the last time, 0 if it has not been read.
+     */
+    public long getReadModified() {
+        return readModified;
+    }
+
+    /**
+     * @return The size of the {@link #file} when it was read the last time, 0 if it has not been read.
+     */
+    public long getReadSize() {
+        return readSize;
+    }
+
     /**
      * @return The combination of {@link GamepadInput}'s which need to be pressed in order
      * to invoke the combination.
@@ -346,6 +566,17 @@ public class Combination {
         return indices;
     }
 
+    /**
+     * @return The indices as an {@link InputKey}, {@link InputKey#NO_KEY} if there are too many of them.
+     */
+    public long getKey() {
+        return InputKey.of(indices);
+    }
+
+    /**
+     * @param o Another object.
+     * @return Whether it is a combination with the same indices.
+     */
     @Override
     public boolean equals(Object o) {
         if (requiresSetup) setup();
@@ -353,15 +584,17 @@ public class Combination {
         if (!(o instanceof Combination)) return false;
 
         Combination combo1 = (Combination) o;
-
-        return hashCode() == combo1.hashCode();
+        long key = getKey();
+        if (key != InputKey.NO_KEY) return key == combo1.getKey();
+        return Arrays.equals(indices, combo1.indices);
     }
 
     /**
-     * @return The hash code determined by the hash code of the indices.
+     * @return The hash code determined by the key of the indices.
      */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(indices);
+        long key = getKey();
+        return key != InputKey.NO_KEY ? Long.hashCode(key) : Arrays.hashCode(indices);
     }
 }
@@ -0,0 +1,467 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A prefix tree of {@link Combination}s. Every node has one child slot per {@link GamepadInput}
+ * (indexed by {@link GamepadInput#ordinal()}), so completions of a prefix can be enumerated without looking at
+ * unrelated combinations. Exact lookups and duplicate checks use a {@link CombinationMap} of the {@link InputKey}s
+ * instead of walking the tree (only inputs longer than {@link InputKey#MAX_LENGTH} are looked up in the tree).
+ * <p>
+ * Completions are ranked: every node keeps the best {@link #TOP} combinations of its subtree, ordered by their rank
+ * (highest first, then in input order). Up to {@link #TOP} completions of a prefix are therefore read from a single
+ * node, no matter how many combinations start with it. The ranks are supplied by a function and read again by
+ * {@link #update(Combination)}.
+ */
+public class CombinationIndex {
+
+    /**
+     * The amount of completions which are kept ranked per node.
+     */
+    public static final int TOP = 8;
+    private static final int FAN_OUT = GamepadInput.values().length;
+    private static final Comparator<Node> ORDER = (a, b) -> a.isBefore(b) ? -1 : b.isBefore(a) ? 1 : 0;
+
+    private final Node root = new Node(null, null);
+    private final CombinationMap exact = new CombinationMap();
+    private final ToDoubleFunction<Combination> ranks;
+    private int size = 0;
+
+    /**
+     * Creates an index whose completions are in input order.
+     */
+    public CombinationIndex() {
+        this(combination -> 0);
+    }
+
+    /**
+     * @param ranks Returns the rank of a combination, higher ranks are completed first. Called when a combination
+     *              is added or updated.
+     */
+    public CombinationIndex(ToDoubleFunction<Combination> ranks) {
+        this.ranks = ranks;
+    }
+
+    /**
+     * Adds a {@link Combination} to the index.
+     *
+     * @param combination The {@link Combination}. Its indices must not be {@code null}.
+     * @return Whether it was added. {@code false} if another combination is bound to the same input.
+     */
+    public synchronized boolean add(Combination combination) {
+        long key = combination.getKey();
+        if (key != InputKey.NO_KEY && exact.get(key) != null) return false;
+
+        Node node = root;
+        for (GamepadInput input : combination.getIndices()) {
+            Node child = node.children[input.ordinal()];
+            if (child == null) {
+                child = new Node(node, input);
+                node.children[input.ordinal()] = child;
+            }
+            node = child;
+        }
+        if (node.combination != null) return false;
+
+        node.combination = combination;
+        if (key != InputKey.NO_KEY) exact.putIfAbsent(key, combination);
+        node.rank = ranks.applyAsDouble(combination);
+        for (Node n = node; n != null; n = n.parent) {
+            n.count++;
+            n.insert(node);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Reads the rank of a registered {@link Combination} again and moves it to its new place in the completions.
+     *
+     * @param combination The {@link Combination}.
+     * @return Whether it is registered (this instance, not another one with the same input).
+     */
+    public synchronized boolean update(Combination combination) {
+        Node node = find(combination.getIndices());
+        if (node == null || node.combination != combination) return false;
+
+        double previous = node.rank;
+        node.rank = ranks.applyAsDouble(combination);
+        for (Node n = node; n != null; n = n.parent) {
+            if (node.rank >= previous) { //Only this combination moved up, the others keep their place
+                n.discard(node);
+                n.insert(node);
+            } else {
+                n.rebuild();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the {@link Combination} bound to an input. Empty branches are pruned.
+     *
+     * @param input The input of the combination.
+     * @return The removed {@link Combination} or {@code null} if nothing was bound to it.
+     */
+    public synchronized Combination remove(GamepadInput[] input) {
+        Node node = find(input);
+        if (node == null || node.combination == null) return null;
+
+        Combination removed = node.combination;
+        node.combination = null;
+        long key = InputKey.of(input);
+        if (key != InputKey.NO_KEY) exact.remove(key);
+        for (Node n = node; n != null; n = n.parent) {
+            n.count--;
+            if (n.count == 0 && n.parent != null) n.parent.children[n.input.ordinal()] = null;
+            else if (n.discard(node)) n.rebuild(); //Another combination may move up
+        }
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes a {@link Combination}, but only if this instance (and not another one with the same input)
+     * is registered.
+     *
+     * @param combination The {@link Combination}.
+     * @return Whether it was removed.
+     */
+    public synchronized boolean remove(Combination combination) {
+        if (get(combination.getIndices()) != combination) return false;
+        remove(combination.getIndices());
+        return true;
+    }
+
+    /**
+     * @param input The complete input.
+     * @return The {@link Combination} bound to exactly this input or {@code null}.
+     */
+    public synchronized Combination get(GamepadInput[] input) {
+        long key = InputKey.of(input);
+        if (key != InputKey.NO_KEY) return exact.get(key);
+        Node node = find(input);
+        return node != null ? node.combination : null;
+    }
+
+    /**
+     * @param key The complete input as an {@link InputKey}.
+     * @return The {@link Combination} bound to exactly this input or {@code null}.
+     */
+    public synchronized Combination get(long key) {
+        return exact.get(key);
+    }
+
+    /**
+     * @param input The input.
+     * @return Whether a {@link Combination} is bound to exactly this input.
+     */
+    public boolean contains(GamepadInput[] input) {
+        return get(input) != null;
+    }
+
+    /**
+     * Walks down the tree along a prefix.
+     *
+     * @param prefix The prefix.
+     * @return The node of the prefix or {@code null} if no combination starts with it.
+     */
+    public synchronized Node find(GamepadInput[] prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length && node != null; i++) {
+            node = node.children[prefix[i].ordinal()];
+        }
+        return node;
+    }
+
+    /**
+     * Walks down the tree along a prefix.
+     *
+     * @param prefix The prefix as an {@link InputKey}.
+     * @return The node of the prefix or {@code null} if no combination starts with it.
+     */
+    public synchronized Node find(long prefix) {
+        Node node = root;
+        for (int i = 0; i < InputKey.length(prefix) && node != null; i++) {
+            node = node.children[InputKey.get(prefix, i).ordinal()];
+        }
+        return node;
+    }
+
+    /**
+     * Collects the combinations below a node (the node's own combination is not included), highest rank first.
+     * Up to {@link #TOP} - 1 combinations are read from the node itself, more require a walk of the subtree.
+     *
+     * @param node   The node, e.g. returned by {@link #find(GamepadInput[])} or a {@link Cursor}. May be {@code null}.
+     * @param limit  The maximum amount of combinations to collect.
+     * @param result The list the combinations are added to.
+     */
+    public synchronized void completions(Node node, int limit, List<Combination> result) {
+        if (node == null || limit <= 0) return;
+        int available = node.combination != null ? node.count - 1 : node.count;
+        int wanted = Math.min(limit, available);
+        int start = result.size();
+        for (int i = 0; i < node.topSize && result.size() - start < wanted; i++) {
+            if (node.top[i] != node) result.add(node.top[i].combination);
+        }
+        if (result.size() - start == wanted) return;
+
+        //More than the ranked ones, sort the whole subtree
+        while (result.size() > start) {
+            result.remove(result.size() - 1);
+        }
+        List<Node> nodes = new ArrayList<>(available);
+        for (Node child : node.children) {
+            if (child != null) collectNodes(child, nodes);
+        }
+        nodes.sort(ORDER);
+        for (int i = 0; i < wanted; i++) {
+            result.add(nodes.get(i).combination);
+        }
+    }
+
+    /**
+     * @return All registered combinations, in input order.
+     */
+    public synchronized List<Combination> values() {
+        List<Combination> result = new ArrayList<>(size);
+        collect(root, Integer.MAX_VALUE, result);
+        return result;
+    }
+
+    /**
+     * Depth-first collection of a subtree, including the node itself.
+     */
+    private void collect(Node node, int limit, List<Combination> result) {
+        if (node.combination != null) result.add(node.combination);
+        for (Node child : node.children) {
+            if (result.size() >= limit) return;
+            if (child != null) collect(child, limit, result);
+        }
+    }
+
+    /**
+     * Depth-first collection of the nodes with a combination of a subtree, including the node itself.
+     */
+    private void collectNodes(Node node, List<Node> result) {
+        if (node.combination != null) result.add(node);
+        for (Node child : node.children) {
+            if (child != null) collectNodes(child, result);
+        }
+    }
+
+    /**
+     * Removes all combinations.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < FAN_OUT; i++) {
+            root.children[i] = null;
+        }
+        root.combination = null;
+        root.count = 0;
+        root.topSize = 0;
+        exact.clear();
+        size = 0;
+    }
+
+    /**
+     * @return The amount of registered combinations.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return A new {@link Cursor} starting at the root of this index.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A node of the tree. Only exists as long as at least one combination is located in its subtree.
+     */
+    public static final class Node {
+
+        private final Node[] children = new Node[FAN_OUT];
+        private final Node parent;
+        private final GamepadInput input;
+        private final Node[] top = new Node[TOP];
+        private int topSize = 0;
+        private Combination combination;
+        private double rank;
+        private int count = 0;
+
+        private Node(Node parent, GamepadInput input) {
+            this.parent = parent;
+            this.input = input;
+        }
+
+        /**
+         * Adds a node of the subtree to the ranked ones, if it belongs to the best {@link #TOP}.
+         *
+         * @param node A node with a combination, not contained yet.
+         */
+        private void insert(Node node) {
+            int position = topSize;
+            while (position > 0 && node.isBefore(top[position - 1])) {
+                position--;
+            }
+            if (position == TOP) return;
+            int moved = Math.min(topSize, TOP - 1) - position;
+            System.arraycopy(top, position, top, position + 1, moved);
+            top[position] = node;
+            topSize = Math.min(topSize + 1, TOP);
+        }
+
+        /**
+         * @param node A node of the subtree.
+         * @return Whether it was ranked and has been removed.
+         */
+        private boolean discard(Node node) {
+            for (int i = 0; i < topSize; i++) {
+                if (top[i] == node) {
+                    System.arraycopy(top, i + 1, top, i, topSize - i - 1);
+                    top[--topSize] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Ranks the subtree again, from the own combination and the ranked ones of the children.
+         */
+        private void rebuild() {
+            for (int i = 0; i < topSize; i++) {
+                top[i] = null;
+            }
+            topSize = 0;
+            if (combination != null) insert(this);
+            for (Node child : children) {
+                if (child == null) continue;
+                for (int i = 0; i < child.topSize; i++) {
+                    insert(child.top[i]);
+                }
+            }
+        }
+
+        /**
+         * @param other Another node with a combination.
+         * @return Whether this node is completed before the other one: it has a higher rank, or the same rank and
+         * comes first in input order.
+         */
+        private boolean isBefore(Node other) {
+            if (rank != other.rank) return rank > other.rank;
+            GamepadInput[] a = combination.getIndices();
+            GamepadInput[] b = other.combination.getIndices();
+            for (int i = 0; i < Math.min(a.length, b.length); i++) {
+                if (a[i] != b[i]) return a[i].ordinal() < b[i].ordinal();
+            }
+            return a.length < b.length;
+        }
+
+        /**
+         * @return The {@link Combination} bound to the path of this node or {@code null}.
+         */
+        public Combination getCombination() {
+            return combination;
+        }
+
+        /**
+         * @return The amount of combinations in this subtree (including this node).
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Remembers the node of the last input so that appending one {@link GamepadInput} only needs a single step
+     * down the tree instead of a walk from the root.
+     */
+    public final class Cursor {
+
+        private Node node = root;
+        private int depth = 0;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves the cursor to the node of an input. If the input is the last input plus one more
+         * {@link GamepadInput}, only one step is taken, otherwise the tree is walked from the root.
+         *
+         * @param input The input.
+         * @return The node of the input or {@code null} if no combination starts with it.
+         */
+        public Node seek(GamepadInput[] input) {
+            synchronized (CombinationIndex.this) {
+                if (node != null && input.length == depth + 1 && isOnPath(input)) {
+                    node = node.children[input[depth].ordinal()];
+                } else {
+                    node = find(input);
+                }
+                depth = input.length;
+                return node;
+            }
+        }
+
+        /**
+         * Moves the cursor to the node of an input like {@link #seek(GamepadInput[])}, without unpacking the key.
+         *
+         * @param input The input as an {@link InputKey}.
+         * @return The node of the input or {@code null} if no combination starts with it.
+         */
+        public Node seek(long input) {
+            synchronized (CombinationIndex.this) {
+                int length = InputKey.length(input);
+                if (node != null && length == depth + 1 && isOnPath(input)) {
+                    node = node.children[InputKey.last(input).ordinal()];
+                } else {
+                    node = find(input);
+                }
+                depth = length;
+                return node;
+            }
+        }
+
+        /**
+         * Resets the cursor to the root.
+         */
+        public void reset() {
+            synchronized (CombinationIndex.this) {
+                node = root;
+                depth = 0;
+            }
+        }
+
+        /**
+         * @return Whether the current node is still attached to the tree and lies on the path of {@code input}
+         * (the last element of {@code input} is ignored).
+         */
+        private boolean isOnPath(GamepadInput[] input) {
+            Node n = node;
+            for (int i = depth - 1; i >= 0; i--, n = n.parent) {
+                if (n.input != input[i] || n.parent.children[n.input.ordinal()] != n) return false;
+            }
+            return n == root;
+        }
+
+        /**
+         * Like {@link #isOnPath(GamepadInput[])}, for an {@link InputKey}.
+         */
+        private boolean isOnPath(long input) {
+            Node n = node;
+            for (int i = depth - 1; i >= 0; i--, n = n.parent) {
+                if (n.input != InputKey.get(input, i) || n.parent.children[n.input.ordinal()] != n) return false;
+            }
+            return n == root;
+        }
+    }
+}
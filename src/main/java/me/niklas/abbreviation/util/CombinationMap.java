@@ -0,0 +1,130 @@
+package me.niklas.abbreviation.util;
+
+import java.util.Arrays;
+
+/**
+ * Maps {@link InputKey}s to {@link Combination}s using open addressing with linear probing: keys and values are kept
+ * in two arrays, so a lookup reads a few neighbouring {@code long}s and does not create any objects. The table is
+ * at most half full. Removed entries are filled by moving later entries of the same run back, so there are no
+ * deleted markers. Not thread-safe.
+ */
+public class CombinationMap {
+
+    private static final long FREE = InputKey.NO_KEY;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Combination[] values;
+    private int size = 0;
+
+    public CombinationMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @param key An {@link InputKey}.
+     * @return The {@link Combination} of the key or {@code null}.
+     */
+    public Combination get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+            if (keys[i] == FREE) return null;
+        }
+    }
+
+    /**
+     * Adds a {@link Combination} unless its key is already used.
+     *
+     * @param key         An {@link InputKey}, not {@link InputKey#NO_KEY}.
+     * @param combination The {@link Combination}.
+     * @return The {@link Combination} which already uses the key or {@code null} if it has been added.
+     */
+    public Combination putIfAbsent(long key, Combination combination) {
+        if (key == FREE) throw new IllegalArgumentException("Invalid key");
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; keys[i] != FREE; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+        }
+        keys[i] = key;
+        values[i] = combination;
+        if (++size * 2 > keys.length) resize(keys.length * 2);
+        return null;
+    }
+
+    /**
+     * @param key An {@link InputKey}.
+     * @return The removed {@link Combination} or {@code null} if the key was not used.
+     */
+    public Combination remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; keys[i] != key; i = (i + 1) & mask) {
+            if (keys[i] == FREE) return null;
+        }
+        Combination removed = values[i];
+
+        //Move entries of the run back which can not be found anymore otherwise
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) { //The gap lies between its home slot and itself
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * @return The amount of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new Combination[capacity];
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Combination[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == FREE) continue;
+            int i = slot(oldKeys[j], mask);
+            while (keys[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * @return The home slot of a key. The bits are mixed first, as the keys of short inputs only use the lowest bits.
+     */
+    private static int slot(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,157 @@
+package me.niklas.abbreviation.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits a combination file into its sections in a single pass over the UTF-8 content. A section starts with a line
+ * like {@code :init}, {@code :run} or any other {@code :name} and lasts until the next one, text in front of the
+ * first section belongs to {@link #RUN}. Lines starting with {@code //} are comments.
+ * <p>
+ * Every section keeps the line numbers of the file: lines of other sections, comments and section headers are
+ * replaced by empty lines. Errors reported while evaluating a section therefore point to the right line of the file.
+ */
+public final class CombinationParser {
+
+    public static final String INIT = "init";
+    public static final String RUN = "run";
+    public static final String PIPE = "pipe";
+
+    private static final Logger logger = LoggerFactory.getLogger(CombinationParser.class.getSimpleName());
+
+    private CombinationParser() {
+    }
+
+    /**
+     * Reads and parses a combination file. Large files are not mapped either: on Windows, editors could not save
+     * them while the mapping exists.
+     *
+     * @param file The {@link File}.
+     * @return The sections by name, in the order of their first appearance.
+     * @throws IOException If the file can not be read.
+     */
+    public static Map<String, String> parse(File file) throws IOException {
+        return parse(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), file.getName());
+    }
+
+    /**
+     * Parses the content of a combination file. Malformed UTF-8 is replaced and reported with its line.
+     *
+     * @param data   The UTF-8 encoded content.
+     * @param source The name of the content, used in error messages.
+     * @return The sections by name, in the order of their first appearance.
+     */
+    public static Map<String, String> parse(ByteBuffer data, String source) {
+        return parse(decode(data, source));
+    }
+
+    /**
+     * Parses the content of a combination file.
+     *
+     * @param text The content.
+     * @return The sections by name, in the order of their first appearance.
+     */
+    public static Map<String, String> parse(CharSequence text) {
+        Map<String, Section> sections = new LinkedHashMap<>();
+        Section current = null;
+        String currentName = RUN;
+        int line = 0;
+        int length = text.length();
+
+        for (int start = 0; start < length; line++) {
+            int end = start;
+            while (end < length && text.charAt(end) != '\n') end++;
+            int next = end + 1;
+            if (end > start && text.charAt(end - 1) == '\r') end--;
+
+            int first = start;
+            while (first < end && Character.isWhitespace(text.charAt(first))) first++;
+
+            if (first < end && text.charAt(first) == ':') { //Section header
+                int nameEnd = first + 1;
+                while (nameEnd < end && !Character.isWhitespace(text.charAt(nameEnd))) nameEnd++;
+                if (nameEnd > first + 1) {
+                    currentName = text.subSequence(first + 1, nameEnd).toString();
+                    current = null;
+                }
+            } else if (first + 1 < end && text.charAt(first) == '/' && text.charAt(first + 1) == '/') {
+                //Comment
+            } else if (first < end) {
+                if (current == null) current = sections.computeIfAbsent(currentName, name -> new Section());
+                current.append(text, start, end, line);
+            }
+            start = next;
+        }
+
+        Map<String, String> result = new LinkedHashMap<>();
+        sections.forEach((name, section) -> result.put(name, section.builder.toString()));
+        return result;
+    }
+
+    /**
+     * Decodes UTF-8 in one pass, a leading byte order mark is skipped.
+     */
+    private static CharSequence decode(ByteBuffer data, String source) {
+        if (data.remaining() >= 3 && (data.get(data.position()) & 0xFF) == 0xEF
+                && (data.get(data.position() + 1) & 0xFF) == 0xBB && (data.get(data.position() + 2) & 0xFF) == 0xBF) {
+            data.position(data.position() + 3);
+        }
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer chars = CharBuffer.allocate(data.remaining());
+        int begin = data.position();
+        while (true) {
+            CoderResult result = decoder.decode(data, chars, true);
+            if (!result.isError()) break;
+
+            logger.error("Invalid UTF-8 in " + source + " at line " + lineOf(data, begin, data.position()));
+            data.position(data.position() + result.length());
+            chars.put('\uFFFD');
+        }
+        decoder.flush(chars);
+        chars.flip();
+        return chars;
+    }
+
+    /**
+     * @return The line (starting at 1) of a position in the data.
+     */
+    private static int lineOf(ByteBuffer data, int begin, int position) {
+        int line = 1;
+        for (int i = begin; i < position; i++) {
+            if (data.get(i) == '\n') line++;
+        }
+        return line;
+    }
+
+    /**
+     * The text of a section, padded with empty lines to keep the line numbers of the file.
+     */
+    private static class Section {
+
+        private final StringBuilder builder = new StringBuilder();
+        private int lines = 0;
+
+        private void append(CharSequence text, int start, int end, int line) {
+            for (; lines < line; lines++) {
+                builder.append('\n');
+            }
+            builder.append(text, start, end).append('\n');
+            lines++;
+        }
+    }
+}
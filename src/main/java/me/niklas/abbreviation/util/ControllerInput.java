@@ -0,0 +1,60 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+
+/**
+ * A single {@link GamepadInput} of a specific controller. Instances for the first {@link #CACHED_CONTROLLERS}
+ * controllers are created once and shared, so typing does not create any objects.
+ */
+public final class ControllerInput {
+
+    private static final int CACHED_CONTROLLERS = 16;
+    private static final ControllerInput[][] CACHE = new ControllerInput[CACHED_CONTROLLERS][];
+
+    static {
+        GamepadInput[] inputs = GamepadInput.values();
+        for (int c = 0; c < CACHED_CONTROLLERS; c++) {
+            CACHE[c] = new ControllerInput[inputs.length];
+            for (GamepadInput input : inputs) {
+                CACHE[c][input.ordinal()] = new ControllerInput(c, input);
+            }
+        }
+    }
+
+    private final int controller;
+    private final GamepadInput input;
+
+    private ControllerInput(int controller, GamepadInput input) {
+        this.controller = controller;
+        this.input = input;
+    }
+
+    /**
+     * @param controller The index of the controller, starting at 0.
+     * @param input      The {@link GamepadInput}.
+     * @return The matching instance.
+     */
+    public static ControllerInput of(int controller, GamepadInput input) {
+        if (controller >= 0 && controller < CACHED_CONTROLLERS) return CACHE[controller][input.ordinal()];
+        return new ControllerInput(controller, input);
+    }
+
+    /**
+     * @return The index of the controller, starting at 0.
+     */
+    public int getController() {
+        return controller;
+    }
+
+    /**
+     * @return The {@link GamepadInput}.
+     */
+    public GamepadInput getInput() {
+        return input;
+    }
+
+    @Override
+    public String toString() {
+        return controller + ":" + input.name();
+    }
+}
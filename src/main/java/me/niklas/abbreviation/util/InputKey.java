@@ -0,0 +1,130 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+
+/**
+ * Packs up to {@link #MAX_LENGTH} {@link GamepadInput}s into a single {@code long}: the ordinal of input {@code i}
+ * is stored in bits {@code 5 * i} to {@code 5 * i + 4}, the amount of inputs in the highest byte. Two keys are equal
+ * exactly if their inputs are equal, and appending an input does not create any objects.
+ */
+public final class InputKey {
+
+    /**
+     * The maximum amount of inputs of a key.
+     */
+    public static final int MAX_LENGTH = 10;
+    /**
+     * The key without any inputs.
+     */
+    public static final long EMPTY = 0;
+    /**
+     * Not the key of any inputs, e.g. returned for inputs which are too long.
+     */
+    public static final long NO_KEY = -1;
+
+    private static final int BITS = 5;
+    private static final long MASK = (1L << BITS) - 1;
+    private static final int LENGTH_SHIFT = 56;
+
+    static {
+        if (GamepadInput.values().length > 1 << BITS) throw new IllegalStateException("Too many inputs to be packed");
+    }
+
+    private InputKey() {
+    }
+
+    /**
+     * @param inputs The inputs.
+     * @return The key of the inputs.
+     * @throws IllegalArgumentException If there are more than {@link #MAX_LENGTH} inputs.
+     */
+    public static long pack(GamepadInput[] inputs) {
+        if (inputs.length > MAX_LENGTH) throw new IllegalArgumentException("Too many inputs: " + inputs.length);
+        long key = EMPTY;
+        for (GamepadInput input : inputs) {
+            key = append(key, input);
+        }
+        return key;
+    }
+
+    /**
+     * @param inputs The inputs, may be {@code null}.
+     * @return The key of the inputs or {@link #NO_KEY} if there are more than {@link #MAX_LENGTH} inputs.
+     */
+    public static long of(GamepadInput[] inputs) {
+        return inputs != null && inputs.length <= MAX_LENGTH ? pack(inputs) : NO_KEY;
+    }
+
+    /**
+     * @param key   A key.
+     * @param input The input.
+     * @return The key with the input added at the end.
+     * @throws IllegalArgumentException If the key already has {@link #MAX_LENGTH} inputs.
+     */
+    public static long append(long key, GamepadInput input) {
+        int length = length(key);
+        if (length == MAX_LENGTH) throw new IllegalArgumentException("The key is full");
+        long inputs = key & ((1L << LENGTH_SHIFT) - 1);
+        return inputs | (long) input.ordinal() << (BITS * length) | (long) (length + 1) << LENGTH_SHIFT;
+    }
+
+    /**
+     * @param key A key.
+     * @return The amount of inputs.
+     */
+    public static int length(long key) {
+        return (int) (key >>> LENGTH_SHIFT);
+    }
+
+    /**
+     * @param key   A key.
+     * @param index The index of the input, must be less than the length.
+     * @return The input.
+     */
+    public static GamepadInput get(long key, int index) {
+        return GamepadInput.valueOf((int) (key >>> (BITS * index) & MASK));
+    }
+
+    /**
+     * @param key A key.
+     * @return The last input or {@code null} if the key is empty.
+     */
+    public static GamepadInput last(long key) {
+        int length = length(key);
+        return length > 0 ? get(key, length - 1) : null;
+    }
+
+    /**
+     * @param key   A key.
+     * @param input The input.
+     * @return The index of the last occurrence of the input or -1 if the key does not contain it.
+     */
+    public static int lastIndexOf(long key, GamepadInput input) {
+        for (int i = length(key) - 1; i >= 0; i--) {
+            if ((key >>> (BITS * i) & MASK) == input.ordinal()) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param key  A key.
+     * @param from The index of the first input to keep, at most the length.
+     * @return The key of the inputs from the index on.
+     */
+    public static long suffix(long key, int from) {
+        long inputs = (key & ((1L << LENGTH_SHIFT) - 1)) >>> (BITS * from);
+        return inputs | (long) (length(key) - from) << LENGTH_SHIFT;
+    }
+
+    /**
+     * @param key A key.
+     * @return A new array of the inputs.
+     */
+    public static GamepadInput[] unpack(long key) {
+        GamepadInput[] inputs = new GamepadInput[length(key)];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = get(key, i);
+        }
+        return inputs;
+    }
+}
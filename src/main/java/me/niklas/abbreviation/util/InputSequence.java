@@ -0,0 +1,99 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+
+import java.util.Arrays;
+
+/**
+ * The typed inputs of a specific controller. Immutable: the first {@link InputKey#MAX_LENGTH} inputs are stored as an
+ * {@link InputKey}, the ordinals of any further inputs as a copy of their bytes.
+ */
+public final class InputSequence {
+
+    private final int controller;
+    private final long key;
+    private final byte[] overflow; //The ordinals after the key, null if the inputs fit into it
+
+    /**
+     * @param controller The index of the controller, starting at 0.
+     * @param inputs     The typed inputs.
+     */
+    public InputSequence(int controller, GamepadInput[] inputs) {
+        this.controller = controller;
+        int packed = Math.min(inputs.length, InputKey.MAX_LENGTH);
+        long key = InputKey.EMPTY;
+        for (int i = 0; i < packed; i++) {
+            key = InputKey.append(key, inputs[i]);
+        }
+        this.key = key;
+        if (inputs.length > packed) {
+            overflow = new byte[inputs.length - packed];
+            for (int i = 0; i < overflow.length; i++) {
+                overflow[i] = (byte) inputs[packed + i].ordinal();
+            }
+        } else {
+            overflow = null;
+        }
+    }
+
+    /**
+     * @param controller The index of the controller, starting at 0.
+     * @param key        The key of the first {@link InputKey#MAX_LENGTH} typed inputs.
+     * @param ordinals   The ordinals of all typed inputs. Only the ones after the key are copied, so the array can be
+     *                   reused.
+     * @param length     The amount of typed inputs.
+     */
+    public InputSequence(int controller, long key, byte[] ordinals, int length) {
+        this.controller = controller;
+        this.key = key;
+        int packed = InputKey.length(key);
+        this.overflow = length > packed ? Arrays.copyOfRange(ordinals, packed, length) : null;
+    }
+
+    /**
+     * @param controller The index of the controller, starting at 0.
+     * @param key        The typed inputs as an {@link InputKey}.
+     */
+    public InputSequence(int controller, long key) {
+        this(controller, key, null, InputKey.length(key));
+    }
+
+    /**
+     * @return The index of the controller, starting at 0.
+     */
+    public int getController() {
+        return controller;
+    }
+
+    /**
+     * @return The typed inputs as an {@link InputKey} or {@link InputKey#NO_KEY} if there are more than
+     * {@link InputKey#MAX_LENGTH} of them.
+     */
+    public long getKey() {
+        return overflow == null ? key : InputKey.NO_KEY;
+    }
+
+    /**
+     * @return A new array of the typed inputs.
+     */
+    public GamepadInput[] getInputs() {
+        int packed = InputKey.length(key);
+        GamepadInput[] inputs = new GamepadInput[getLength()];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = i < packed ? InputKey.get(key, i) : GamepadInput.valueOf(overflow[i - packed]);
+        }
+        return inputs;
+    }
+
+    /**
+     * @return The amount of typed inputs.
+     */
+    public int getLength() {
+        return InputKey.length(key) + (overflow != null ? overflow.length : 0);
+    }
+
+    @Override
+    public String toString() {
+        return controller + ":" + GamepadInput.toReadable(getInputs());
+    }
+}
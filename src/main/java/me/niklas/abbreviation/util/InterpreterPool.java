@@ -0,0 +1,199 @@
+package me.niklas.abbreviation.util;
+
+import bsh.EvalError;
+import bsh.Interpreter;
+import bsh.NameSpace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable {@link Interpreter}s. The bindings (e.g. {@code Utils}) and the default imports are set up once in a
+ * root {@link NameSpace}. Every pooled interpreter works in its own child namespace, which is cleared when the
+ * interpreter is released, so scripts running at the same time or one after another do not see each other's
+ * variables.
+ * <p>
+ * Up to {@link #getMaximumSize()} interpreters exist, further callers wait until one is released. Interpreters of
+ * scripts which can not be stopped are given up ({@link #abandon(Thread)}) and replaced.
+ */
+public class InterpreterPool {
+
+    private static volatile InterpreterPool shared;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final NameSpace root;
+    private final BlockingQueue<Interpreter> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final Map<Interpreter, Thread> leases = new ConcurrentHashMap<>();
+    private final Set<Interpreter> abandoned = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+    private final int maximumSize;
+
+    /**
+     * Creates a pool without bindings and imports.
+     */
+    public InterpreterPool() {
+        this(Collections.emptyMap(), "", 1, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param bindings    The variables visible to all scripts.
+     * @param defaultCode Code (e.g. imports) evaluated once in the root namespace.
+     * @param warm        The amount of interpreters created immediately.
+     * @param maximumSize The maximum amount of interpreters.
+     */
+    public InterpreterPool(Map<String, Object> bindings, String defaultCode, int warm, int maximumSize) {
+        this.maximumSize = Math.max(1, maximumSize);
+
+        Interpreter interpreter = new Interpreter();
+        try {
+            for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+                interpreter.set(binding.getKey(), binding.getValue());
+            }
+            if (!defaultCode.isBlank()) interpreter.eval(defaultCode);
+        } catch (EvalError e) {
+            logger.error("An error occurred while setting up the interpreter variables: ", e);
+        }
+        root = interpreter.getNameSpace();
+
+        for (int i = 0; i < Math.min(warm, this.maximumSize); i++) {
+            created.incrementAndGet();
+            idle.add(create());
+        }
+    }
+
+    /**
+     * @return The pool used by combinations which are not run by a CombinationManager (e.g. init scripts).
+     * Created without bindings if none has been set.
+     */
+    public static InterpreterPool getShared() {
+        InterpreterPool pool = shared;
+        if (pool == null) {
+            synchronized (InterpreterPool.class) {
+                if (shared == null) shared = new InterpreterPool();
+                pool = shared;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * @param pool The pool returned by {@link #getShared()}.
+     */
+    public static void setShared(InterpreterPool pool) {
+        shared = pool;
+    }
+
+    /**
+     * @return A new interpreter working in a child namespace of the root.
+     */
+    private Interpreter create() {
+        return new Interpreter(new StringReader(""), System.out, System.err, false, new NameSpace(root, "pooled"));
+    }
+
+    /**
+     * Takes an interpreter from the pool. Creates one if none is idle and the maximum has not been reached,
+     * otherwise waits for one. A thread which already holds one, e.g. a script calling {@code Utils.executeJava},
+     * does not wait but gets an additional interpreter. Has to be returned using {@link #release(Interpreter)}.
+     *
+     * @return An interpreter with a clean namespace.
+     */
+    public Interpreter acquire() {
+        int[] depth = held.get();
+        Interpreter interpreter = take(depth[0] > 0);
+        depth[0]++;
+        leases.put(interpreter, Thread.currentThread());
+        return interpreter;
+    }
+
+    private Interpreter take(boolean nested) {
+        Interpreter interpreter = idle.poll();
+        if (interpreter != null) return interpreter;
+
+        if (created.incrementAndGet() <= maximumSize || nested) return create(); //Waiting for itself would block
+        created.decrementAndGet();
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            created.incrementAndGet(); //Do not fail, but exceed the maximum once
+            return create();
+        }
+    }
+
+    /**
+     * Clears the namespace of an interpreter and returns it to the pool.
+     *
+     * @param interpreter An interpreter returned by {@link #acquire()}.
+     */
+    public void release(Interpreter interpreter) {
+        if (leases.remove(interpreter) == Thread.currentThread()) held.get()[0]--;
+        if (abandoned.remove(interpreter)) return; //Already replaced
+        interpreter.getNameSpace().clear();
+        if (created.get() > maximumSize) { //Created while interrupted or nested, drop it
+            created.decrementAndGet();
+            return;
+        }
+        idle.offer(interpreter);
+    }
+
+    /**
+     * Gives up the interpreters held by a thread, e.g. of a script which has been stopped but keeps running.
+     * They are replaced by new ones, and dropped instead of being reused when they are released.
+     *
+     * @param thread The thread.
+     * @return The amount of replaced interpreters.
+     */
+    public int abandon(Thread thread) {
+        int replaced = 0;
+        for (Map.Entry<Interpreter, Thread> lease : leases.entrySet()) {
+            if (lease.getValue() == thread && abandoned.add(lease.getKey())) {
+                idle.offer(create()); //Takes over the place of the abandoned one, wakes up a waiting caller
+                replaced++;
+            }
+        }
+        if (replaced > 0) logger.warn("Replaced " + replaced + " interpreter(s) of a script which did not stop");
+        return replaced;
+    }
+
+    /**
+     * Evaluates a script using a pooled interpreter.
+     *
+     * @param script The script.
+     * @param name   The name of a variable only visible to this script, e.g. "combination". May be {@code null}.
+     * @param value  The value of the variable.
+     * @return The returned value of the script.
+     * @throws EvalError If the script can not be parsed or fails.
+     */
+    public Object eval(String script, String name, Object value) throws EvalError {
+        Interpreter interpreter = acquire();
+        try {
+            if (name != null) interpreter.set(name, value);
+            return interpreter.eval(script);
+        } finally {
+            release(interpreter);
+        }
+    }
+
+    /**
+     * @return The namespace holding the bindings and imports. Methods declared in its children see the bindings.
+     */
+    public NameSpace getNameSpace() {
+        return root;
+    }
+
+    /**
+     * @return The maximum amount of interpreters.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+}
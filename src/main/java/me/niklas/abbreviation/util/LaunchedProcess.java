@@ -0,0 +1,95 @@
+package me.niklas.abbreviation.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A process started by the {@link ProcessLauncher}.
+ */
+public final class LaunchedProcess {
+
+    private final Process process;
+    private final CompletableFuture<Integer> exit;
+    private volatile boolean timedOut = false;
+
+    /**
+     * @param process The process.
+     * @param exit    Completed with the exit code once the process has terminated and its output has been read.
+     */
+    LaunchedProcess(Process process, CompletableFuture<Integer> exit) {
+        this.process = process;
+        this.exit = exit;
+    }
+
+    /**
+     * Called when the timeout of the process is reached.
+     */
+    void timeout() {
+        if (!process.isAlive()) return;
+        timedOut = true;
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * @return The process.
+     */
+    public Process getProcess() {
+        return process;
+    }
+
+    /**
+     * @return The native process ID.
+     */
+    public long getPid() {
+        return process.pid();
+    }
+
+    /**
+     * @return Whether the process has not terminated yet.
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * @return Whether the process has been killed because it exceeded its timeout.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return Completed with the exit code once the process has terminated and all output lines have been passed to
+     * the callbacks.
+     */
+    public CompletableFuture<Integer> onExit() {
+        return exit;
+    }
+
+    /**
+     * Waits for the process and its output.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of {@code timeout}.
+     * @return The exit code or -1 if the process is still running.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     */
+    public int waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            return exit.get(timeout, unit);
+        } catch (TimeoutException | ExecutionException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Terminates the process and all processes started by it.
+     */
+    public void destroy() {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+    }
+}
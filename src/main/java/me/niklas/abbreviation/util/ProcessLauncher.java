@@ -0,0 +1,117 @@
+package me.niklas.abbreviation.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Starts processes using a {@link ProcessBuilder}. Output streams with a callback are read line by line, each by its
+ * own daemon thread, the others are discarded by the operating system, so a process never blocks on a full pipe
+ * nobody reads. A shared pool would let streams wait for a reader while their processes block.
+ */
+public class ProcessLauncher {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+    private final ThreadFactory readers = daemon("ProcessReader");
+    private final ScheduledExecutorService timer;
+
+    public ProcessLauncher() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, daemon("ProcessTimeout"));
+        timer.setRemoveOnCancelPolicy(true);
+        this.timer = timer;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @param command A command line.
+     * @return The command line run by the shell of the system (cmd on Windows, sh everywhere else).
+     */
+    public static List<String> shell(String command) {
+        return OperatingSystem.WINDOWS ? Arrays.asList("cmd", "/c", command) : Arrays.asList("/bin/sh", "-c", command);
+    }
+
+    /**
+     * Starts a process. Returns immediately.
+     *
+     * @param command The program and its arguments.
+     * @param output  Called with every line of the standard output, {@code null} to discard it.
+     * @param errors  Called with every line of the error output, {@code null} to discard it.
+     * @param timeout The time in milliseconds after which the process and its children are killed, 0 for no timeout.
+     * @return The {@link LaunchedProcess}.
+     * @throws IOException If the process can not be started.
+     */
+    public LaunchedProcess launch(List<String> command, Consumer<String> output, Consumer<String> errors, long timeout)
+            throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command).redirectInput(ProcessBuilder.Redirect.INHERIT);
+        if (output == null) builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        if (errors == null) builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = builder.start();
+
+        CompletableFuture<Void> stdout = output != null ? read(process.getInputStream(), output) : CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> stderr = errors != null ? read(process.getErrorStream(), errors) : CompletableFuture.completedFuture(null);
+        CompletableFuture<Integer> exit = CompletableFuture.allOf(process.onExit(), stdout, stderr)
+                .thenApply(ignored -> process.exitValue());
+        LaunchedProcess launched = new LaunchedProcess(process, exit);
+
+        if (timeout > 0) {
+            Future<?> deadline = timer.schedule(launched::timeout, timeout, TimeUnit.MILLISECONDS);
+            process.onExit().thenRun(() -> deadline.cancel(false));
+        }
+        return launched;
+    }
+
+    /**
+     * Passes the lines of a stream to a callback using a new reader thread.
+     *
+     * @return Completed once the stream has ended.
+     */
+    private CompletableFuture<Void> read(InputStream stream, Consumer<String> callback) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        readers.newThread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charset.defaultCharset()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        callback.accept(line);
+                    } catch (Exception e) {
+                        logger.error("An error occurred while handling the output of a process: ", e);
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Stopped reading the output of a process: " + e.getMessage());
+            }
+            done.complete(null);
+        }).start();
+        return done;
+    }
+
+    /**
+     * Stops the timeouts. Running processes are not terminated, their output is still read until it ends.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,99 @@
+package me.niklas.abbreviation.util;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The names of the running processes, read using {@link ProcessHandle#allProcesses()}. The list is cached for a
+ * short time, so scripts can check for processes repeatedly without enumerating them every time.
+ */
+public class ProcessSnapshot {
+
+    private final long maxAge;
+    private volatile Snapshot current;
+
+    /**
+     * Caches the process list for one second.
+     */
+    public ProcessSnapshot() {
+        this(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param maxAge How long a process list is used.
+     * @param unit   The unit of {@code maxAge}.
+     */
+    public ProcessSnapshot(long maxAge, TimeUnit unit) {
+        this.maxAge = unit.toNanos(maxAge);
+    }
+
+    /**
+     * @param name The name of the program (e.g. "firefox" or "notepad.exe"), case insensitive. ".exe" is optional.
+     * @return Whether a process of this program is running. Processes of other users may not be visible.
+     */
+    public boolean isRunning(String name) {
+        return getNames().contains(normalize(name));
+    }
+
+    /**
+     * @return The lower case names of the programs of all visible processes, without ".exe".
+     */
+    public Set<String> getNames() {
+        Snapshot snapshot = current;
+        long now = System.nanoTime();
+        if (snapshot == null || now - snapshot.taken > maxAge) {
+            synchronized (this) {
+                snapshot = current;
+                if (snapshot == null || now - snapshot.taken > maxAge) {
+                    snapshot = new Snapshot(System.nanoTime(), read());
+                    current = snapshot;
+                }
+            }
+        }
+        return snapshot.names;
+    }
+
+    /**
+     * @return The names of the programs of all visible processes.
+     */
+    private Set<String> read() {
+        Set<String> names = new HashSet<>();
+        ProcessHandle.allProcesses().forEach(process -> {
+            Optional<String> command = process.info().command();
+            if (command.isEmpty()) return;
+            try {
+                Path file = Paths.get(command.get()).getFileName();
+                if (file != null) names.add(normalize(file.toString()));
+            } catch (InvalidPathException e) {
+                names.add(normalize(command.get()));
+            }
+        });
+        return Collections.unmodifiableSet(names);
+    }
+
+    private String normalize(String name) {
+        name = name.trim().toLowerCase(Locale.ROOT);
+        return name.endsWith(".exe") ? name.substring(0, name.length() - 4) : name;
+    }
+
+    /**
+     * A process list and the time it was read.
+     */
+    private static class Snapshot {
+
+        private final long taken;
+        private final Set<String> names;
+
+        private Snapshot(long taken, Set<String> names) {
+            this.taken = taken;
+            this.names = names;
+        }
+    }
+}
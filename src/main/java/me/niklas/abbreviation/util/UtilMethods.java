@@ -2,7 +2,6 @@ package me.niklas.abbreviation.util;
 
 
 import bsh.EvalError;
-import bsh.Interpreter;
 import me.niklas.abbreviation.enums.EventType;
 import me.niklas.abbreviation.events.EventManager;
 import me.niklas.abbreviation.events.EventSubscriber;
@@ -13,12 +12,10 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URI;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Created by Niklas on 13.10.2018 in abbreviation
@@ -30,7 +27,8 @@ public class UtilMethods {
 
     private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
     private final EventManager events;
-    private ExecutorService executor = Executors.newCachedThreadPool();
+    private final ProcessLauncher launcher = new ProcessLauncher();
+    private final ProcessSnapshot processes = new ProcessSnapshot();
 
     /**
      * Without an {@link EventManager}, util methods are not able to call events.
@@ -68,35 +66,52 @@ public class UtilMethods {
     }
 
     /**
-     * Executes a command in the cmd/shell.
+     * Executes a command in the cmd/shell. Its output is discarded.
      *
      * @param command The command as a {@link String}.
+     * @return The {@link LaunchedProcess} or {@code null} if it could not be started.
      */
-    public void execute(String command) {
+    public LaunchedProcess execute(String command) {
+        return execute(command, null, null, 0);
+    }
+
+    /**
+     * Executes a command in the cmd/shell and passes its output to callbacks, line by line. Returns immediately.
+     *
+     * @param command The command as a {@link String}.
+     * @param output  Called with every line of the standard output, {@code null} to discard it.
+     * @param errors  Called with every line of the error output, {@code null} to discard it.
+     * @param timeout The time in milliseconds after which the process is killed, 0 for no timeout.
+     * @return The {@link LaunchedProcess} or {@code null} if it could not be started.
+     */
+    public LaunchedProcess execute(String command, Consumer<String> output, Consumer<String> errors, long timeout) {
+        return launch(ProcessLauncher.shell(command), output, errors, timeout);
+    }
 
+    /**
+     * Starts a process using the {@link ProcessLauncher}.
+     *
+     * @return The {@link LaunchedProcess} or {@code null} if it could not be started.
+     */
+    private LaunchedProcess launch(List<String> command, Consumer<String> output, Consumer<String> errors, long timeout) {
         try {
-            if (OperatingSystem.WINDOWS) {
-                Runtime.getRuntime().exec("cmd /c " + command);
-            } else {
-                Runtime.getRuntime().exec("/bin/sh -c " + command);
-            }
+            return launcher.launch(command, output, errors, timeout);
         } catch (IOException e) {
             logger.error("Could not execute command: ", e);
+            return null;
         }
     }
 
     /**
-     * Executes a piece of Java code. Unlike the {@link me.niklas.abbreviation.input.CombinationManager},
-     * no environment variables are set.
+     * Executes a piece of Java code using the shared {@link InterpreterPool}. Variables declared by the code are
+     * not kept between calls.
      *
      * @param code The code to be executed. Has to be valid Java code, else an exception will be thrown.
      * @return The returned {@link Object}, or else {@code null}.
      */
     public Object executeJava(String code) {
-        Interpreter interpreter = new Interpreter();
-
         try {
-            return interpreter.eval(code);
+            return InterpreterPool.getShared().eval(code, null, null);
         } catch (EvalError evalError) {
             logger.error("Could not evaluate code: ", evalError);
         }
@@ -107,20 +122,13 @@ public class UtilMethods {
      * Starts a process. Notice that you either have to specify the absolute path or have to add it to the PATH variable.
      *
      * @param programName The absolute path or the name of the executable added to PATH.
+     * @return The {@link LaunchedProcess} or {@code null} if it could not be started.
      */
-    public void start(String programName) {
-        try {
-            if (OperatingSystem.WINDOWS) {
-                if (programName.trim().endsWith("exe"))
-                    Runtime.getRuntime().exec("cmd /c " + programName);
-                else
-                    Runtime.getRuntime().exec("cmd /c start " + programName);
-            } else {
-                Runtime.getRuntime().exec("/bin/sh -c " + programName);
-            }
-        } catch (IOException e) {
-            logger.error("Error while running process: ", e);
+    public LaunchedProcess start(String programName) {
+        if (OperatingSystem.WINDOWS && !programName.trim().endsWith("exe")) {
+            return launch(ProcessLauncher.shell("start " + programName), null, null, 0);
         }
+        return launch(ProcessLauncher.shell(programName), null, null, 0);
     }
 
     /**
@@ -153,52 +161,19 @@ public class UtilMethods {
     public void exit() {
         if (events == null) return;
 
-        executor.shutdown();
+        launcher.shutdown();
         events.performExit();
     }
 
     /**
-     * Windows only. Checks whether a process with a specific name is running.
+     * Checks whether a process with a specific name is running. The process list is cached for a second, so this
+     * can be called repeatedly.
      *
-     * @param processName The name of the process (e.g. "firefox")
+     * @param processName The name of the process (e.g. "firefox"), ".exe" is optional.
      * @return Whether the process is running.
      */
     public boolean isProcessRunning(String processName) {
-        if (!OperatingSystem.WINDOWS) {
-            logger.warn("Non-Windows systems do not support isProcessRunning yet.");
-            return false;
-        }
-        Process process = null;
-        try {
-            process = Runtime.getRuntime().exec("cmd /c tasklist /FO CSV");
-        } catch (IOException e) {
-            logger.error("Could not execute tasklist: ", e);
-        }
-        if (process == null) return false;
-        final Process threadProcess = process;
-        StringBuffer buffer = new StringBuffer();
-        executor.submit(() -> {
-
-            BufferedReader input = new BufferedReader(new InputStreamReader(threadProcess.getInputStream()));
-            String line;
-
-            try {
-                while ((line = input.readLine()) != null)
-                    buffer.append(line.split(",")[0].replace('"', ' ').trim()).append("\n");
-            } catch (IOException e) {
-                logger.error("Could not read from tasklist command input stream: ", e);
-            }
-
-        });
-        try {
-            process.waitFor();
-        } catch (Exception e) {
-            logger.error("Interrupted: ", e);
-        }
-        for (String name : buffer.toString().split("\n")) {
-            if (name.equalsIgnoreCase(processName)) return true;
-        }
-        return false;
+        return processes.isRunning(processName);
     }
 
     /**
@@ -208,6 +183,10 @@ public class UtilMethods {
      * @param message The message as a {@link String}.
      */
     public void showMessage(String message) {
+        if (GraphicsEnvironment.isHeadless()) { //No screen to show the message on (e.g. while testing)
+            logger.info(message);
+            return;
+        }
 
         Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
 
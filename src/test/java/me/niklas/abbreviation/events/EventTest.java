@@ -1,9 +1,15 @@
 package me.niklas.abbreviation.events;
 
+import me.niklas.abbreviation.enums.Backpressure;
 import me.niklas.abbreviation.enums.EventType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by Niklas on 24.02.2019 in abbreviation
  */
@@ -40,6 +46,145 @@ public class EventTest implements EventSubscriber {
         Assert.assertEquals(1, calls);
     }
 
+    /**
+     * Fires many events from two threads. Each subscriber has to receive the events of one thread in order.
+     */
+    @Test
+    public void testOrder() throws InterruptedException {
+        EventManager manager = new EventManager(16);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2000);
+        manager.subscribeFor((type, param) -> {
+            received.add((Integer) param);
+            done.countDown();
+        }, EventType.RUN_COMBINATION);
+
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) manager.fire(EventType.RUN_COMBINATION, -i - 1);
+        });
+        other.start();
+        for (int i = 0; i < 1000; i++) manager.fire(EventType.RUN_COMBINATION, i);
+
+        Assert.assertTrue("Events were lost", done.await(5, TimeUnit.SECONDS));
+        int lastPositive = -1;
+        int lastNegative = 0;
+        for (int value : received) {
+            if (value >= 0) {
+                Assert.assertEquals(lastPositive + 1, value);
+                lastPositive = value;
+            } else {
+                Assert.assertEquals(lastNegative - 1, value);
+                lastNegative = value;
+            }
+        }
+    }
+
+    /**
+     * Blocks a subscriber and overfills its queue with a dropping event type. Only the newest events may survive.
+     */
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        EventManager manager = new EventManager(2);
+        manager.setBackpressure(EventType.SHOW_MESSAGE, Backpressure.DROP_OLDEST);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        manager.subscribeFor((type, param) -> {
+            if ("block".equals(param)) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            received.add(param);
+        }, EventType.SHOW_MESSAGE);
+
+        manager.fire(EventType.SHOW_MESSAGE, "block");
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) manager.fire(EventType.SHOW_MESSAGE, i);
+        release.countDown();
+
+        for (int i = 0; i < 50 && received.size() < 3; i++) Thread.sleep(100);
+        Thread.sleep(100);
+        Assert.assertEquals(3, received.size());
+        Assert.assertEquals(8, received.get(1));
+        Assert.assertEquals(9, received.get(2));
+    }
+
+    /**
+     * A subscriber may exceed its capacity by firing to itself, afterwards the capacity applies again.
+     */
+    @Test
+    public void testSelfFireKeepsCapacity() throws InterruptedException {
+        EventManager manager = new EventManager(2);
+        manager.setBackpressure(EventType.SHOW_MESSAGE, Backpressure.DROP_OLDEST);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        manager.subscribeFor((type, param) -> {
+            if ("self".equals(param)) {
+                for (int i = 0; i < 5; i++) manager.fire(EventType.SHOW_MESSAGE, "echo");
+            } else if ("block".equals(param)) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            received.add(param);
+        }, EventType.SHOW_MESSAGE);
+
+        manager.fire(EventType.SHOW_MESSAGE, "self");
+        for (int i = 0; i < 50 && received.size() < 6; i++) Thread.sleep(100);
+        Assert.assertEquals("Self-fired events were lost", 6, received.size());
+        received.clear();
+
+        manager.fire(EventType.SHOW_MESSAGE, "block");
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) manager.fire(EventType.SHOW_MESSAGE, i);
+        release.countDown();
+
+        for (int i = 0; i < 50 && received.size() < 3; i++) Thread.sleep(100);
+        Thread.sleep(100);
+        Assert.assertArrayEquals("The capacity grew", new Object[]{"block", 8, 9}, received.toArray());
+    }
+
+    /**
+     * Queues previews while the subscriber is busy. Only the last preview before another event may be delivered.
+     */
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        EventManager manager = new EventManager();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> received = new CopyOnWriteArrayList<>();
+        manager.subscribeFor((type, param) -> {
+            if ("block".equals(param)) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            received.add(param);
+        }, EventType.SHOW_PREVIEW, EventType.RUN_COMBINATION);
+
+        manager.fire(EventType.RUN_COMBINATION, "block");
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) manager.fire(EventType.SHOW_PREVIEW, i);
+        manager.fire(EventType.RUN_COMBINATION, "run");
+        for (int i = 5; i < 10; i++) manager.fire(EventType.SHOW_PREVIEW, i);
+        release.countDown();
+
+        for (int i = 0; i < 50 && received.size() < 4; i++) Thread.sleep(100);
+        Thread.sleep(100);
+        Assert.assertArrayEquals(new Object[]{"block", 4, "run", 9}, received.toArray());
+    }
+
     @Override
     public void onEvent(EventType type, Object param) {
         calls++;
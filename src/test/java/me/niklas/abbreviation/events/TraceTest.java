@@ -0,0 +1,82 @@
+package me.niklas.abbreviation.events;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.util.ControllerInput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TraceTest {
+
+    /**
+     * A recorded trace is replayed in the same order and with roughly the same timing, other events are not recorded.
+     */
+    @Test
+    public void recordAndReplay() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TraceRecorder recorder = new TraceRecorder(bytes);
+        recorder.onEvent(EventType.TYPED, ControllerInput.of(0, GamepadInput.A));
+        Thread.sleep(50);
+        recorder.onEvent(EventType.RELEASED, ControllerInput.of(0, GamepadInput.A));
+        recorder.onEvent(EventType.SHOW_MESSAGE, "Not recorded");
+        recorder.onEvent(EventType.TYPED, ControllerInput.of(300, GamepadInput.RS_PRESS));
+        recorder.close();
+        Assert.assertEquals(3, recorder.getCount());
+
+        TraceReplayer replayer = new TraceReplayer(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals(3, replayer.size());
+        Assert.assertTrue("Lost the timing", replayer.getDuration() >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        List<String> received = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        EventManager events = new EventManager();
+        events.subscribeFor((type, param) -> {
+            received.add(type + " " + param);
+            latch.countDown();
+        }, EventType.TYPED, EventType.RELEASED);
+
+        long start = System.nanoTime();
+        replayer.replay(events, 1);
+        Assert.assertTrue("Replayed too fast", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals("[TYPED 0:A, RELEASED 0:A, TYPED 300:RS_PRESS]", received.toString());
+        events.performExit();
+    }
+
+    /**
+     * Events are recorded at the time they have been fired, not when they have been delivered.
+     */
+    @Test
+    public void firedTime() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TraceRecorder recorder = new TraceRecorder(bytes);
+        EventManager events = new EventManager();
+        events.subscribeFor(recorder, EventType.TYPED);
+
+        long polled = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        events.fire(EventType.TYPED, ControllerInput.of(0, GamepadInput.A), polled);
+        events.fire(EventType.TYPED, ControllerInput.of(0, GamepadInput.B), polled + TimeUnit.MILLISECONDS.toNanos(20));
+        for (int i = 0; i < 100 && recorder.getCount() < 2; i++) Thread.sleep(10);
+        events.performExit();
+
+        TraceReplayer replayer = new TraceReplayer(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals(2, replayer.size());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(20), replayer.getDuration());
+    }
+
+    /**
+     * Other files are rejected.
+     */
+    @Test(expected = IOException.class)
+    public void invalid() throws IOException {
+        new TraceReplayer(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+    }
+}
@@ -1,11 +1,22 @@
 package me.niklas.abbreviation.input;
 
 import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.ExecutionStatus;
+import me.niklas.abbreviation.enums.GamepadInput;
 import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.util.InterpreterPool;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Niklas on 24.02.2019 in abbreviation
@@ -17,20 +28,202 @@ public class CombinationManagerTest {
      * Expected result is that the directory has been updated (because of the event).
      */
     @Test
-    public void reload() {
+    public void reload() throws Exception {
         EventManager manager = new EventManager();
         CombinationManager combo = new CombinationManager(manager);
 
         manager.subscribe(combo);
 
+        CompletableFuture<Void> reloaded = combo.getNextReload();
         manager.fire(EventType.RELOAD, new File("").getAbsolutePath());
+        reloaded.get(5, TimeUnit.SECONDS);
 
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        Assert.assertNotNull(combo.getDirectory());
+    }
+
+    /**
+     * Reloads a directory lazily. The combinations have to be found before they are loaded and are loaded on demand,
+     * empty files have to be deleted once loading is done.
+     */
+    @Test
+    public void lazyReload() throws Exception {
+        File dir = Files.createTempDirectory("combinations").toFile();
+        File first = write(dir, "2-3.txt", ":init\ncombination.setName(\"First\");\n:run\nreturn 1;");
+        File second = write(dir, "4.txt", ":run\nreturn 2;");
+        File empty = write(dir, "5.txt", "");
+
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+        CountDownLatch blocked = new CountDownLatch(1);
+        loader.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+
+        EventManager manager = new EventManager();
+        CombinationManager combo = new CombinationManager(manager, loader);
+        manager.subscribe(combo);
+        CompletableFuture<Void> reloaded = combo.getNextReload();
+        manager.fire(EventType.RELOAD, dir.getAbsolutePath());
+        reloaded.get(5, TimeUnit.SECONDS);
+
+        //Nothing has been loaded, as the loader is blocked
+        Assert.assertFalse(combo.getLoading().isDone());
+        Assert.assertTrue("Empty combination was loaded", empty.exists());
+        Execution execution = combo.execute(0, new GamepadInput[]{GamepadInput.Y});
+        Assert.assertNotNull("Combination was not found", execution);
+        Assert.assertEquals("Combination was not loaded on demand", 2, execution.get());
+
+        blocked.countDown();
+        combo.getLoading().get(5, TimeUnit.SECONDS);
+        Assert.assertFalse("Empty combination was not deleted", empty.exists());
+        Assert.assertTrue(first.exists() && second.exists());
+
+        combo.onExit();
+        File snapshot = new File(dir, CombinationSnapshot.FILE_NAME);
+        Assert.assertTrue("No snapshot written", snapshot.exists());
+        Assert.assertTrue(new File(dir, UsageRanking.FILE_NAME).delete());
+        Assert.assertTrue(first.delete() && second.delete() && snapshot.delete() && dir.delete());
+    }
+
+    /**
+     * A looping combination must neither block other combinations nor run longer than the timeout, and can be
+     * cancelled. Looping combinations which were stopped must not use up the interpreters.
+     */
+    @Test
+    public void execution() throws Exception {
+        File dir = Files.createTempDirectory("combinations").toFile();
+        File loop = write(dir, "2.txt", ":run\nwhile(true) {}");
+        File quick = write(dir, "3.txt", ":run\nreturn 3;");
+
+        EventManager manager = new EventManager();
+        CombinationManager combo = new CombinationManager(manager);
+        manager.subscribe(combo);
+        reload(manager, combo, dir);
+
+        combo.setTimeout(300);
+        Execution looping = combo.execute(0, new GamepadInput[]{GamepadInput.A});
+        Execution returning = combo.execute(0, new GamepadInput[]{GamepadInput.X});
+        Assert.assertTrue("Blocked by the looping combination", returning.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(ExecutionStatus.COMPLETED, returning.getStatus());
+        Assert.assertEquals(3, returning.getResult());
+
+        Assert.assertTrue("Timeout was ignored", looping.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(ExecutionStatus.TIMED_OUT, looping.getStatus());
+
+        combo.setTimeout(0);
+        looping = combo.execute(1, new GamepadInput[]{GamepadInput.A});
+        Assert.assertEquals("Cancelled another controller", 0, combo.cancel(0));
+        manager.fire(EventType.CANCEL_EXECUTION, 1);
+        Assert.assertTrue("Not cancelled", looping.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(ExecutionStatus.CANCELLED, looping.getStatus());
+        Assert.assertFalse(looping.cancel());
+
+        //Stopped scripts keep running, their interpreters must not be missing afterwards
+        combo.setTimeout(100);
+        for (int i = 0; i <= InterpreterPool.getShared().getMaximumSize(); i++) {
+            looping = combo.execute(0, new GamepadInput[]{GamepadInput.A});
+            Assert.assertTrue("Timeout was ignored", looping.await(1, TimeUnit.SECONDS));
         }
+        returning = combo.execute(0, new GamepadInput[]{GamepadInput.X});
+        Assert.assertTrue("No interpreter left", returning.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(ExecutionStatus.COMPLETED, returning.getStatus());
 
-        Assert.assertNotNull(combo.getDirectory());
+        combo.onExit();
+        File snapshot = new File(dir, CombinationSnapshot.FILE_NAME);
+        Assert.assertTrue(new File(dir, UsageRanking.FILE_NAME).delete());
+        Assert.assertTrue(loop.delete() && quick.delete() && snapshot.delete() && dir.delete());
+    }
+
+    /**
+     * Results are passed to the next stage of a pipeline, declared in a file or typed. Stages only run concurrently
+     * if they are declared parallel.
+     */
+    @Test
+    public void pipeline() throws Exception {
+        File dir = Files.createTempDirectory("combinations").toFile();
+        File first = write(dir, "2.txt", ":run\nreturn \"Hello\";\n:pipe\n3\n");
+        File second = write(dir, "3.txt", ":run\nreturn \"Got \" + input;");
+        File loop = write(dir, "4.txt", ":run\nwhile(true) {}");
+        File independent = write(dir, "5.txt", ":run\nreturn 5;");
+        File parallel = write(dir, "6.txt", ":run\nwhile(true) {}\n:pipe\nparallel\n5\n");
+
+        EventManager manager = new EventManager();
+        CombinationManager combo = new CombinationManager(manager);
+        manager.subscribe(combo);
+        reload(manager, combo, dir);
+
+        Execution declared = combo.execute(0, new GamepadInput[]{GamepadInput.A});
+        Assert.assertEquals("Got Hello", declared.get());
+        Assert.assertFalse(declared.isIntermediate());
+
+        Execution typed = combo.execute(0, new GamepadInput[]{GamepadInput.B, GamepadInput.PIPE, GamepadInput.X});
+        Assert.assertEquals("Got 5", typed.get());
+
+        Execution sequential = combo.execute(0, new GamepadInput[]{GamepadInput.Y, GamepadInput.PIPE, GamepadInput.B});
+        Assert.assertFalse("Did not wait for the previous stage", sequential.await(200, TimeUnit.MILLISECONDS));
+        combo.cancel(0); //The waiting stage may cancel itself first
+        Assert.assertTrue("Not cancelled", sequential.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(ExecutionStatus.CANCELLED, sequential.getStatus());
+
+        Execution concurrent = combo.execute(0, new GamepadInput[]{GamepadInput.DPAD_DOWN});
+        Assert.assertTrue("Waited for a parallel stage", concurrent.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(5, concurrent.getResult());
+        Assert.assertEquals(1, combo.cancel(0));
+
+        Assert.assertNull("Ran a pipeline with a missing stage",
+                combo.execute(0, new GamepadInput[]{GamepadInput.A, GamepadInput.PIPE, GamepadInput.RB}));
+
+        combo.onExit();
+        File snapshot = new File(dir, CombinationSnapshot.FILE_NAME);
+        Assert.assertTrue(first.delete() && second.delete() && loop.delete() && independent.delete() && parallel.delete());
+        Assert.assertTrue(new File(dir, UsageRanking.FILE_NAME).delete());
+        Assert.assertTrue(snapshot.delete() && dir.delete());
+    }
+
+    /**
+     * A changed file must not replace or remove the combination read from another file with the same input.
+     */
+    @Test
+    public void sameInput() throws Exception {
+        File dir = Files.createTempDirectory("combinations").toFile();
+        File legacy = write(dir, "2-5.txt", ":run\nreturn 1;");
+        File compact = write(dir, "_25.txt", ":run\nreturn 2;");
+        GamepadInput[] input = {GamepadInput.A, GamepadInput.B};
+
+        EventManager manager = new EventManager();
+        CombinationManager combo = new CombinationManager(manager);
+        manager.subscribe(combo);
+        reload(manager, combo, dir);
+        Object loaded = combo.execute(0, input).get();
+        File other = loaded.equals(1) ? compact : legacy;
+
+        combo.update(other);
+        Assert.assertEquals("Replaced by another file", loaded, combo.execute(0, input).get());
+        Assert.assertTrue(other.delete());
+        combo.update(other);
+        Assert.assertEquals("Removed by another file", loaded, combo.execute(0, input).get());
+
+        combo.onExit();
+        File snapshot = new File(dir, CombinationSnapshot.FILE_NAME);
+        Assert.assertTrue(new File(dir, UsageRanking.FILE_NAME).delete());
+        Assert.assertTrue((legacy.delete() || compact.delete()) && snapshot.delete() && dir.delete());
+    }
+
+    /**
+     * Reloads a directory and waits until all of its combinations have been loaded.
+     */
+    private void reload(EventManager manager, CombinationManager combo, File dir) throws Exception {
+        CompletableFuture<Void> reloaded = combo.getNextReload();
+        manager.fire(EventType.RELOAD, dir.getAbsolutePath());
+        reloaded.get(5, TimeUnit.SECONDS);
+        combo.getLoading().get(5, TimeUnit.SECONDS);
+    }
+
+    private File write(File dir, String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.util.Combination;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+public class CombinationSnapshotTest {
+
+    /**
+     * Stored combinations are restored with their name and scripts, unless their file changed.
+     */
+    @Test
+    public void writeAndRestore() throws IOException {
+        File dir = Files.createTempDirectory("combinations").toFile();
+        File first = write(dir, "2-3.txt", ":init\ncombination.setName(\"First\");\n:run\nreturn \"ä\";");
+        File second = write(dir, "4.txt", ":run\nreturn 2;");
+
+        CombinationSnapshot snapshot = new CombinationSnapshot();
+        snapshot.write(dir, Arrays.asList(new Combination(first), new Combination(second),
+                new Combination(new GamepadInput[]{GamepadInput.A}, "", "")));
+
+        Map<String, CombinationSnapshot.Entry> entries = snapshot.read(dir);
+        Assert.assertEquals("Prefabricated combination was stored", 2, entries.size());
+
+        Combination restored = entries.get("2-3.txt").restore(first);
+        Assert.assertNotNull(restored);
+        Assert.assertEquals("First", restored.getName());
+        Assert.assertEquals(new Combination(first).getRunScript(), restored.getRunScript());
+        Assert.assertTrue(restored.hasSameInput(new GamepadInput[]{GamepadInput.A, GamepadInput.X}));
+
+        write(dir, "4.txt", ":run\nreturn 3;");
+        Assert.assertTrue(second.setLastModified(second.lastModified() + 2000));
+        Assert.assertNull("Changed file was restored", entries.get("4.txt").restore(second));
+
+        File file = new File(dir, CombinationSnapshot.FILE_NAME);
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        Assert.assertTrue("Corrupt snapshot was read", snapshot.read(dir).isEmpty());
+
+        Assert.assertTrue(first.delete() && second.delete() && file.delete() && dir.delete());
+    }
+
+    /**
+     * Snapshots with invalid amounts, lengths or inputs are ignored instead of failing.
+     */
+    @Test
+    public void corrupt() throws IOException {
+        File dir = Files.createTempDirectory("combinations").toFile();
+        File file = new File(dir, CombinationSnapshot.FILE_NAME);
+        CombinationSnapshot snapshot = new CombinationSnapshot();
+
+        byte[][] snapshots = {
+                header(-1).array(),
+                header(Integer.MAX_VALUE).array(),
+                header(1).putInt(Integer.MAX_VALUE).array(), //File name
+                header(1).putInt(0).putLong(0).putLong(0).put((byte) -1).array(), //Amount of inputs
+                header(1).putInt(0).putLong(0).putLong(0).put((byte) 1).put((byte) 100).array() //Input
+        };
+        for (byte[] bytes : snapshots) {
+            Files.write(file.toPath(), bytes);
+            Assert.assertTrue("Corrupt snapshot was read", snapshot.read(dir).isEmpty());
+        }
+
+        Assert.assertTrue(file.delete() && dir.delete());
+    }
+
+    private ByteBuffer header(int count) {
+        return ByteBuffer.allocate(64).putInt(0x41424252).putInt(2).putInt(count);
+    }
+
+    private File write(File dir, String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
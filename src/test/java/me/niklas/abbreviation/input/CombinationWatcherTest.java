@@ -0,0 +1,54 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.events.EventSubscriber;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class CombinationWatcherTest implements EventSubscriber {
+
+    private final List<File> changed = new CopyOnWriteArrayList<>();
+
+    /**
+     * Writes a combination file several times in a row and expects exactly one change event.
+     * Files which are not combination files have to be ignored.
+     */
+    @Test
+    public void debouncedChange() throws Exception {
+        File dir = Files.createTempDirectory("combinations").toFile();
+        EventManager manager = new EventManager();
+        manager.subscribeFor(this, EventType.COMBINATION_CHANGED);
+        CombinationWatcher watcher = new CombinationWatcher(manager);
+        watcher.watch(dir);
+
+        File file = new File(dir, "2-3.txt");
+        File other = new File(dir, "notes.txt");
+        for (int i = 0; i < 3; i++) {
+            Files.write(file.toPath(), ("return " + i + ";").getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(other.toPath(), new byte[0]);
+
+        for (int i = 0; i < 100 && changed.isEmpty(); i++) { //Some platforms poll for changes
+            Thread.sleep(100);
+        }
+        Thread.sleep(500);
+        watcher.shutdown();
+
+        Assert.assertEquals(1, changed.size());
+        Assert.assertEquals(file.getAbsoluteFile(), changed.get(0).getAbsoluteFile());
+
+        Assert.assertTrue(file.delete() && other.delete() && dir.delete());
+    }
+
+    @Override
+    public void onEvent(EventType type, Object param) {
+        changed.add((File) param);
+    }
+}
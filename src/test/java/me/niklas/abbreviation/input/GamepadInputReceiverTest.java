@@ -0,0 +1,154 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.util.ControllerInput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static me.niklas.abbreviation.enums.GamepadInput.*;
+
+public class GamepadInputReceiverTest implements EventSubscriber {
+
+    private final List<ControllerInput> typed = new CopyOnWriteArrayList<>();
+    private final List<ControllerInput> released = new CopyOnWriteArrayList<>();
+
+    /**
+     * Drives the receiver with a scripted controller. Holding a button must only fire once,
+     * pressing it again after releasing it must fire again.
+     */
+    @Test
+    public void scriptedController() throws InterruptedException {
+        EventManager manager = new EventManager();
+        manager.subscribeFor(this, EventType.TYPED, EventType.RELEASED);
+        ScriptedController controller = new ScriptedController(0, mask(A), mask(A), mask(A), 0, mask(A), mask(B), mask(B), 0);
+        GamepadInputReceiver receiver = new GamepadInputReceiver(manager, controller);
+        await(receiver, controller);
+
+        Assert.assertArrayEquals(new GamepadInput[]{A, A, B}, inputs(typed, 0));
+        Assert.assertArrayEquals(new GamepadInput[]{A, A, B}, inputs(released, 0));
+        Assert.assertTrue("Backend was not closed", controller.closed);
+    }
+
+    /**
+     * Buttons pressed at the same time are all typed. A bound chord is typed as a single input,
+     * even if its buttons are not pressed in the same poll.
+     */
+    @Test
+    public void chords() throws InterruptedException {
+        EventManager manager = new EventManager();
+        manager.subscribeFor(this, EventType.TYPED);
+        ScriptedController controller = new ScriptedController(0, mask(A, X), 0, mask(LB), mask(LB, RB), mask(LB, RB), 0,
+                mask(LB), mask(LB), mask(LB), mask(LB), mask(LB), mask(LB), mask(LB), mask(LB), mask(LB), mask(LB), mask(LB), 0);
+        GamepadInputReceiver receiver = new GamepadInputReceiver(manager, controller);
+        receiver.bindChord(START, LB, RB);
+        await(receiver, controller);
+
+        Assert.assertArrayEquals(new GamepadInput[]{A, X, START, LB}, inputs(typed, 0));
+    }
+
+    /**
+     * All controllers are read in the same pass, their inputs are tagged with the controller index.
+     * Unplugged controllers are skipped.
+     */
+    @Test
+    public void multipleControllers() throws InterruptedException {
+        EventManager manager = new EventManager();
+        manager.subscribeFor(this, EventType.TYPED);
+        ScriptedController controller = new ScriptedController(new int[][]{
+                {0, mask(A), 0, mask(B), 0},
+                {0, mask(X), mask(X), mask(X), 0},
+                null});
+        GamepadInputReceiver receiver = new GamepadInputReceiver(manager, controller);
+        await(receiver, controller);
+
+        Assert.assertArrayEquals(new GamepadInput[]{A, B}, inputs(typed, 0));
+        Assert.assertArrayEquals(new GamepadInput[]{X}, inputs(typed, 1));
+        Assert.assertEquals(3, typed.size());
+    }
+
+    /**
+     * @return The inputs of one controller, in the order they were fired.
+     */
+    private static GamepadInput[] inputs(List<ControllerInput> list, int controller) {
+        return list.stream().filter(i -> i.getController() == controller).map(ControllerInput::getInput).toArray(GamepadInput[]::new);
+    }
+
+    private void await(GamepadInputReceiver receiver, ScriptedController controller) throws InterruptedException {
+        for (int i = 0; i < 50 && !controller.isDone(); i++) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(100);
+        receiver.onExit();
+    }
+
+    private static int mask(GamepadInput... inputs) {
+        int mask = 0;
+        for (GamepadInput input : inputs) {
+            mask |= 1 << input.ordinal();
+        }
+        return mask;
+    }
+
+    @Override
+    public void onEvent(EventType type, Object param) {
+        if (type == EventType.TYPED) typed.add((ControllerInput) param);
+        else released.add((ControllerInput) param);
+    }
+
+    /**
+     * Returns one scripted state per poll and controller, nothing afterwards. {@code null} scripts are unplugged.
+     */
+    private static class ScriptedController implements ControllerBackend {
+
+        private final int[][] scripts;
+        private volatile int position = -1;
+        private volatile boolean closed = false;
+
+        private ScriptedController(int... script) {
+            this(new int[][]{script});
+        }
+
+        private ScriptedController(int[][] scripts) {
+            this.scripts = scripts;
+        }
+
+        @Override
+        public void update() {
+            position++;
+        }
+
+        @Override
+        public int getControllerCount() {
+            return scripts.length;
+        }
+
+        @Override
+        public int read(int controller) {
+            int[] script = scripts[controller];
+            return script != null && position < script.length ? script[position] : 0;
+        }
+
+        @Override
+        public boolean isConnected(int controller) {
+            return scripts[controller] != null;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private boolean isDone() {
+            for (int[] script : scripts) {
+                if (script != null && position < script.length) return false;
+            }
+            return true;
+        }
+    }
+}
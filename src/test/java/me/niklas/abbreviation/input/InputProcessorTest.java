@@ -4,14 +4,24 @@ import me.niklas.abbreviation.enums.EventType;
 import me.niklas.abbreviation.enums.GamepadInput;
 import me.niklas.abbreviation.events.EventManager;
 import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.util.ControllerInput;
+import me.niklas.abbreviation.util.InputSequence;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by Niklas on 24.02.2019 in abbreviation
  */
 public class InputProcessorTest implements EventSubscriber {
 
+    private final List<InputSequence> run = new CopyOnWriteArrayList<>();
+    private final List<Object> cancelled = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch events = new CountDownLatch(0); //Counts the RUN_COMBINATION and CANCEL_EXECUTION events
     private int called;
 
     /**
@@ -39,10 +49,99 @@ public class InputProcessorTest implements EventSubscriber {
 
     }
 
+    /**
+     * Every controller types into its own buffer.
+     */
+    @Test
+    public void testControllers() throws InterruptedException {
+        EventManager manager = new EventManager();
+        InputProcessor processor = new InputProcessor(manager);
+
+        manager.subscribe(processor);
+        manager.subscribe(this);
+        events = new CountDownLatch(2);
+
+        manager.fire(EventType.TYPED, ControllerInput.of(0, GamepadInput.A));
+        manager.fire(EventType.TYPED, ControllerInput.of(1, GamepadInput.B));
+        manager.fire(EventType.TYPED, ControllerInput.of(0, GamepadInput.X));
+        manager.fire(EventType.TYPED, ControllerInput.of(1, GamepadInput.START));
+        manager.fire(EventType.TYPED, ControllerInput.of(0, GamepadInput.START));
+
+        awaitEvents();
+
+        Assert.assertEquals(2, run.size());
+        Assert.assertEquals(1, run.get(0).getController());
+        Assert.assertArrayEquals(new GamepadInput[]{GamepadInput.B}, run.get(0).getInputs());
+        Assert.assertEquals(0, run.get(1).getController());
+        Assert.assertArrayEquals(new GamepadInput[]{GamepadInput.A, GamepadInput.X}, run.get(1).getInputs());
+    }
+
+    /**
+     * The cancel chord cancels the combinations of its controller and clears the buffer.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        EventManager manager = new EventManager();
+        InputProcessor processor = new InputProcessor(manager);
+
+        manager.subscribe(processor);
+        manager.subscribe(this);
+        events = new CountDownLatch(2);
+
+        manager.fire(EventType.TYPED, ControllerInput.of(1, GamepadInput.A));
+        manager.fire(EventType.TYPED, ControllerInput.of(1, GamepadInput.CANCEL));
+        manager.fire(EventType.TYPED, ControllerInput.of(1, GamepadInput.START));
+
+        awaitEvents();
+
+        Assert.assertEquals(1, cancelled.size());
+        Assert.assertEquals(1, cancelled.get(0));
+        Assert.assertEquals("Buffer was not cleared", 0, run.get(0).getInputs().length);
+    }
+
+    /**
+     * Inputs beyond the configured maximum length are ignored, up to 64 inputs can be typed.
+     */
+    @Test
+    public void testMaxLength() throws InterruptedException {
+        EventManager manager = new EventManager();
+        InputProcessor processor = new InputProcessor(manager, 100);
+        Assert.assertEquals(InputProcessor.LIMIT, processor.getMaxLength());
+
+        manager.subscribe(processor);
+        manager.subscribe(this);
+        events = new CountDownLatch(1);
+
+        for (int i = 0; i < InputProcessor.LIMIT + 3; i++) {
+            manager.fire(EventType.TYPED, ControllerInput.of(0, i % 2 == 0 ? GamepadInput.A : GamepadInput.RS_PRESS));
+        }
+        manager.fire(EventType.TYPED, ControllerInput.of(0, GamepadInput.START));
+
+        awaitEvents();
+
+        GamepadInput[] inputs = run.get(0).getInputs();
+        Assert.assertEquals(InputProcessor.LIMIT, inputs.length);
+        Assert.assertEquals(GamepadInput.RS_PRESS, inputs[inputs.length - 1]);
+        inputs[0] = GamepadInput.B;
+        Assert.assertEquals("The published inputs are mutable", GamepadInput.A, run.get(0).getInputs()[0]);
+    }
+
+    /**
+     * Waits until the expected RUN_COMBINATION and CANCEL_EXECUTION events have been received.
+     */
+    private void awaitEvents() throws InterruptedException {
+        Assert.assertTrue("Timed out waiting for the events", events.await(5, TimeUnit.SECONDS));
+    }
+
     @Override
     public void onEvent(EventType type, Object param) {
         if (type == EventType.RUN_COMBINATION) {
             called++;
+            run.add((InputSequence) param);
+            events.countDown();
+        } else if (type == EventType.CANCEL_EXECUTION) {
+            cancelled.add(param);
+            events.countDown();
         }
     }
 }
\ No newline at end of file
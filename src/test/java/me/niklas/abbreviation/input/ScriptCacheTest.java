@@ -0,0 +1,39 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.InterpreterPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class ScriptCacheTest {
+
+    /**
+     * Runs a cached script, edits the file and expects the new script to be used after it has been compiled again.
+     */
+    @Test
+    public void invoke() throws Exception {
+        File file = new File(Files.createTempDirectory("combinations").toFile(), "2-5.txt");
+        file.deleteOnExit();
+        file.getParentFile().deleteOnExit();
+        Files.write(file.toPath(), ":run\nreturn \"First\";".getBytes(StandardCharsets.UTF_8));
+
+        ScriptCache cache = new ScriptCache(new InterpreterPool(), "\n");
+        Combination combination = new Combination(file);
+
+        Assert.assertEquals("First", cache.invoke(combination));
+        Assert.assertEquals("First", cache.invoke(combination));
+
+        Files.write(file.toPath(), ":run\nreturn \"Second\";".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+        Assert.assertEquals("Modification stamp was ignored", "Second", cache.invoke(combination));
+
+        Files.write(file.toPath(), ":run\nreturn \"Third\";".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(file.setLastModified(file.lastModified()));
+        combination.requireSetup();
+        Assert.assertEquals("Setup was ignored", "Third", cache.invoke(combination));
+    }
+}
@@ -0,0 +1,92 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.InterpreterPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+public class ScriptCompilerTest {
+
+    private File directory;
+    private Map<String, Object> bindings;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("combinations").toFile();
+        bindings = Collections.singletonMap("Combinations", null);
+    }
+
+    @After
+    public void tearDown() {
+        File compiled = new File(directory, ScriptCompiler.DIRECTORY_NAME);
+        File[] files = compiled.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Assert.assertTrue(file.delete());
+            }
+        }
+        compiled.delete();
+        File[] combinations = directory.listFiles();
+        if (combinations != null) {
+            for (File file : combinations) {
+                Assert.assertTrue(file.delete());
+            }
+        }
+        Assert.assertTrue(directory.delete());
+    }
+
+    /**
+     * Compiles Java scripts, with and without a return statement and using the input, and loads them from the disk cache afterwards.
+     */
+    @Test
+    public void compile() throws Exception {
+        Combination loop = combination("2-5.txt", ":run\nStringBuilder b = new StringBuilder();\n"
+                + "for (int i = 0; i < 3; i++) b.append(i);\nreturn b.toString() + combination.getIndices().length + input;");
+        Combination nothing = combination("3.txt", ":run\nList<String> list = new ArrayList<>();");
+
+        ScriptCompiler compiler = new ScriptCompiler(bindings, "import me.niklas.abbreviation.enums.*;\n");
+        CompiledScript script = compiler.compile(loop);
+        Assert.assertNotNull("Not compiled", script);
+        Assert.assertEquals("0122!", script.run("!"));
+        Assert.assertNull(compiler.compile(nothing).run(null));
+
+        File[] cached = new File(directory, ScriptCompiler.DIRECTORY_NAME).listFiles();
+        Assert.assertNotNull(cached);
+        Assert.assertEquals(2, cached.length);
+
+        //Loaded from the cache, the file is still valid
+        CompiledScript restored = new ScriptCompiler(bindings, "import me.niklas.abbreviation.enums.*;\n").compile(loop);
+        Assert.assertEquals("0122?", restored.run("?"));
+        Assert.assertNotSame(script.getClass(), restored.getClass());
+    }
+
+    /**
+     * Scripts which are no valid Java are interpreted.
+     */
+    @Test
+    public void fallback() throws Exception {
+        Combination loose = combination("4.txt", ":run\nvalue = 5;\nreturn \"Interpreted\";");
+
+        ScriptCompiler compiler = new ScriptCompiler(bindings, "");
+        Assert.assertNull(compiler.compile(loose));
+
+        ScriptCache cache = new ScriptCache(new InterpreterPool(), "");
+        cache.setCompiler(compiler);
+        Assert.assertEquals("Interpreted", cache.invoke(loose));
+    }
+
+    private Combination combination(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return new Combination(file);
+    }
+}
@@ -0,0 +1,41 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.ExecutionStatus;
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.util.Combination;
+import me.niklas.abbreviation.util.InterpreterPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class ScriptExecutorTest {
+
+    /**
+     * A stage waiting for the previous one is neither timed out nor measured while it waits.
+     */
+    @Test
+    public void waitingStage() throws Exception {
+        EventManager events = new EventManager();
+        ScriptExecutor executor = new ScriptExecutor(events, execution -> {
+        }, new InterpreterPool(Collections.emptyMap(), "", 0, 1));
+        executor.setTimeout(300);
+        Combination combination = new Combination(new GamepadInput[]{GamepadInput.A}, "", "");
+
+        Execution first = executor.submit(combination, 0, null, () -> {
+            Thread.sleep(200);
+            return 1;
+        }, true);
+        Execution second = executor.submit(combination, 0, first, () -> {
+            Thread.sleep(200);
+            return (Integer) first.getResult() + 1;
+        }, false);
+
+        Assert.assertEquals(2, second.get());
+        Assert.assertEquals(ExecutionStatus.COMPLETED, second.getStatus());
+        Assert.assertTrue("Measured the wait", second.getDuration() < TimeUnit.MILLISECONDS.toNanos(300));
+        events.performExit();
+    }
+}
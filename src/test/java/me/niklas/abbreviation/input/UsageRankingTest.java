@@ -0,0 +1,60 @@
+package me.niklas.abbreviation.input;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.util.Combination;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class UsageRankingTest {
+
+    private final Combination a = new Combination(new GamepadInput[]{GamepadInput.A}, "", "");
+    private final Combination b = new Combination(new GamepadInput[]{GamepadInput.B, GamepadInput.X}, "", "");
+
+    /**
+     * Uses count half as much after every half-life, recent uses can outrank older, more frequent ones.
+     */
+    @Test
+    public void decay() {
+        UsageRanking ranking = new UsageRanking(1000);
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, ranking.getRank(a), 0);
+
+        ranking.use(a, 0);
+        ranking.use(a, 0);
+        ranking.use(a, 0);
+        Assert.assertEquals(3, ranking.getCount(a, 0), 1e-9);
+        Assert.assertEquals(1.5, ranking.getCount(a, 1000), 1e-9);
+
+        ranking.use(b, 2000);
+        ranking.use(b, 2000);
+        Assert.assertTrue("Old uses outrank recent ones", ranking.getRank(b) > ranking.getRank(a));
+
+        ranking.use(a, 100L * 365 * 24 * 60 * 60 * 1000); //Far in the future, must not overflow
+        Assert.assertEquals(1, ranking.getCount(a, 100L * 365 * 24 * 60 * 60 * 1000), 1e-9);
+    }
+
+    /**
+     * Ranks are written to and read from the combination directory.
+     */
+    @Test
+    public void persistence() throws IOException {
+        File directory = Files.createTempDirectory("usage").toFile();
+        try {
+            UsageRanking ranking = new UsageRanking(1000);
+            ranking.use(a, 500);
+            ranking.use(b, 1000);
+            ranking.write(directory);
+
+            UsageRanking read = new UsageRanking(1000);
+            read.read(directory);
+            Assert.assertEquals(ranking.getRank(a), read.getRank(a), 0);
+            Assert.assertEquals(ranking.getRank(b), read.getRank(b), 0);
+        } finally {
+            new File(directory, UsageRanking.FILE_NAME).delete();
+            directory.delete();
+        }
+    }
+}
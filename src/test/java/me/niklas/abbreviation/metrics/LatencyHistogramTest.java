@@ -0,0 +1,42 @@
+package me.niklas.abbreviation.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    /**
+     * Every value lies within its bucket and the buckets are precise to about 6%.
+     */
+    @Test
+    public void buckets() {
+        long[] values = {0, 1, 15, 16, 17, 40, 41, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            Assert.assertTrue("Value above its bucket: " + value, value <= LatencyHistogram.highestOf(bucket));
+            Assert.assertTrue("Value below its bucket: " + value, bucket == 0 || value > LatencyHistogram.highestOf(bucket - 1));
+            Assert.assertTrue("Bucket too wide: " + value, LatencyHistogram.highestOf(bucket) - value <= value / 16 + 1);
+        }
+    }
+
+    /**
+     * Percentiles are taken from the recorded distribution.
+     */
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(50.5, snapshot.getMeanMicros(), 0.01);
+        Assert.assertTrue("p50: " + snapshot.getP50Micros(), Math.abs(snapshot.getP50Micros() - 50) <= 3);
+        Assert.assertTrue("p99: " + snapshot.getP99Micros(), Math.abs(snapshot.getP99Micros() - 99) <= 6);
+        Assert.assertEquals(100, snapshot.getMaxMicros());
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.snapshot().getCount());
+    }
+}
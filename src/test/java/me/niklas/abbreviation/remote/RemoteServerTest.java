@@ -0,0 +1,161 @@
+package me.niklas.abbreviation.remote;
+
+import me.niklas.abbreviation.enums.EventType;
+import me.niklas.abbreviation.enums.GamepadInput;
+import me.niklas.abbreviation.events.EventManager;
+import me.niklas.abbreviation.events.EventSubscriber;
+import me.niklas.abbreviation.util.InputSequence;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class RemoteServerTest implements EventSubscriber {
+
+    private final BlockingQueue<EventType> types = new LinkedBlockingQueue<>();
+    private final List<Object> params = new CopyOnWriteArrayList<>();
+    private EventManager events;
+    private RemoteServer server;
+    private File tokenFile;
+
+    @Before
+    public void setUp() throws IOException {
+        events = new EventManager();
+        events.subscribe(this);
+        tokenFile = new File(Files.createTempDirectory("remote").toFile(), RemoteServer.TOKEN_FILE);
+        server = new RemoteServer(events, tokenFile);
+        server.start(0);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        Assert.assertFalse("Token file was kept", tokenFile.exists());
+        Assert.assertTrue(tokenFile.getParentFile().delete());
+    }
+
+    /**
+     * Requests without the token, from web pages or to another host are rejected.
+     */
+    @Test
+    public void security() throws Exception {
+        Assert.assertEquals(server.getToken(), new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.US_ASCII));
+        String host = "Host: localhost:" + server.getPort() + "\r\n";
+        String token = RemoteServer.TOKEN_HEADER + ": " + server.getToken() + "\r\n";
+        Assert.assertEquals(403, send("/run?input=2", host));
+        Assert.assertEquals(403, send("/run?input=2", host + RemoteServer.TOKEN_HEADER + ": wrong\r\n"));
+        Assert.assertEquals(403, send("/run?input=2", host + token + "Origin: http://example.com\r\n"));
+        Assert.assertEquals(403, send("/run?input=2", "Host: attacker.example:" + server.getPort() + "\r\n" + token));
+        Assert.assertNull("Fired a rejected request", types.poll(200, TimeUnit.MILLISECONDS));
+
+        Assert.assertEquals(202, send("/reload?directory=/tmp", host + token));
+        Assert.assertEquals(EventType.RELOAD, types.poll(1, TimeUnit.SECONDS));
+        Assert.assertNull("Reloaded another directory", params.get(0));
+    }
+
+    /**
+     * Requests are turned into events, invalid ones are rejected without firing anything.
+     */
+    @Test
+    public void requests() throws Exception {
+        Assert.assertEquals(202, post("/run?input=2-5&controller=1", ""));
+        Assert.assertEquals(EventType.RUN_COMBINATION, types.poll(1, TimeUnit.SECONDS));
+        InputSequence sequence = (InputSequence) params.get(0);
+        Assert.assertEquals(1, sequence.getController());
+        Assert.assertArrayEquals(new GamepadInput[]{GamepadInput.values()[2], GamepadInput.values()[5]}, sequence.getInputs());
+
+        Assert.assertEquals(400, post("/run", ""));
+        Assert.assertEquals(400, post("/run?input=2&controller=x", ""));
+        Assert.assertEquals(404, post("/unknown", ""));
+        Assert.assertEquals(400, post("/batch", "run 2\nedit\n"));
+        Assert.assertNull("Fired an invalid request", types.poll(200, TimeUnit.MILLISECONDS));
+
+        Assert.assertEquals(202, post("/batch", "# Comment\nrun 2\npreview 2-3 1\nreload\ncancel 0\n"));
+        Assert.assertEquals(EventType.RUN_COMBINATION, types.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals(EventType.SHOW_PREVIEW, types.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals(EventType.RELOAD, types.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals(EventType.CANCEL_EXECUTION, types.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, params.get(params.size() - 1));
+    }
+
+    /**
+     * Requests sent back to back over one connection are all answered.
+     */
+    @Test
+    public void pipelining() throws Exception {
+        String request = "POST /run?input=2 HTTP/1.1\r\nHost: localhost:" + server.getPort() + "\r\n"
+                + RemoteServer.TOKEN_HEADER + ": " + server.getToken() + "\r\nContent-Length: 0\r\n\r\n";
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write((request + request + request).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            int responses = 0;
+            String line;
+            while (responses < 3 && (line = in.readLine()) != null) {
+                if (line.startsWith("HTTP/1.1 202")) responses++;
+            }
+            Assert.assertEquals(3, responses);
+        }
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(EventType.RUN_COMBINATION, types.poll(1, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Sends a request without a body over a new connection.
+     *
+     * @return The status of the response.
+     */
+    private int send(String path, String headers) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.setSoTimeout(5000);
+            String request = "POST " + path + " HTTP/1.1\r\n" + headers + "Content-Length: 0\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            String status = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+            return Integer.parseInt(status.split(" ")[1]);
+        }
+    }
+
+    private int post(String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty(RemoteServer.TOKEN_HEADER, server.getToken());
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    @Override
+    public void onEvent(EventType type, Object param) {
+        params.add(param);
+        types.add(type);
+    }
+
+    @Override
+    public void onExit() {
+    }
+}
@@ -0,0 +1,163 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static me.niklas.abbreviation.enums.GamepadInput.*;
+
+public class CombinationIndexTest {
+
+    private CombinationIndex index;
+
+    @Before
+    public void setUp() {
+        index = new CombinationIndex();
+        index.add(new Combination(new GamepadInput[]{A, B}, "", ""));
+        index.add(new Combination(new GamepadInput[]{A, B, X}, "", ""));
+        index.add(new Combination(new GamepadInput[]{A, Y}, "", ""));
+        index.add(new Combination(new GamepadInput[]{B}, "", ""));
+    }
+
+    /**
+     * Exact lookups only match the complete input, a second combination with the same input is rejected.
+     */
+    @Test
+    public void addAndGet() {
+        Assert.assertEquals(4, index.size());
+        Assert.assertTrue(index.get(new GamepadInput[]{A, B}).hasSameInput(new GamepadInput[]{A, B}));
+        Assert.assertNull(index.get(new GamepadInput[]{A}));
+        Assert.assertNull(index.get(new GamepadInput[]{X}));
+
+        Assert.assertFalse("Accepted duplicate", index.add(new Combination(new GamepadInput[]{A, Y}, "", "")));
+        Assert.assertEquals(4, index.size());
+        Assert.assertSame(index.get(new GamepadInput[]{A, Y}), index.get(InputKey.pack(new GamepadInput[]{A, Y})));
+
+        GamepadInput[] longInput = new GamepadInput[InputKey.MAX_LENGTH + 2];
+        Arrays.fill(longInput, X);
+        Assert.assertTrue(index.add(new Combination(longInput, "", "")));
+        Assert.assertNotNull("Inputs without a key are not found", index.get(longInput.clone()));
+    }
+
+    /**
+     * Completions contain every longer combination starting with the prefix, but not the prefix itself.
+     */
+    @Test
+    public void completions() {
+        List<Combination> result = new ArrayList<>();
+        index.completions(index.find(new GamepadInput[]{A}), 6, result);
+        Assert.assertEquals(3, result.size());
+
+        result.clear();
+        index.completions(index.find(new GamepadInput[]{A, B}), 6, result);
+        Assert.assertEquals(1, result.size());
+        Assert.assertTrue(result.get(0).hasSameInput(new GamepadInput[]{A, B, X}));
+
+        result.clear();
+        index.completions(index.find(new GamepadInput[]{A}), 2, result);
+        Assert.assertEquals("Limit is ignored", 2, result.size());
+    }
+
+    /**
+     * Removing a combination prunes its branch without affecting others.
+     */
+    @Test
+    public void remove() {
+        Assert.assertNotNull(index.remove(new GamepadInput[]{A, B, X}));
+        Assert.assertNull(index.remove(new GamepadInput[]{A, B, X}));
+        Assert.assertNotNull(index.get(new GamepadInput[]{A, B}));
+
+        index.remove(new GamepadInput[]{A, B});
+        index.remove(new GamepadInput[]{A, Y});
+        Assert.assertNull(index.find(new GamepadInput[]{A}));
+        Assert.assertEquals(1, index.size());
+    }
+
+    /**
+     * A cursor follows appended inputs and recovers from jumps and removed branches.
+     */
+    @Test
+    public void cursor() {
+        CombinationIndex.Cursor cursor = index.cursor();
+
+        Assert.assertNotNull(cursor.seek(new GamepadInput[]{A}));
+        Assert.assertNotNull(cursor.seek(new GamepadInput[]{A, B}).getCombination());
+        Assert.assertNotNull(cursor.seek(new GamepadInput[]{A, B, X}).getCombination());
+        Assert.assertNull(cursor.seek(new GamepadInput[]{A, B, X, Y}));
+        Assert.assertNotNull(cursor.seek(new GamepadInput[]{B}).getCombination());
+
+        cursor.seek(new GamepadInput[]{A});
+        index.remove(new GamepadInput[]{A, Y});
+        index.remove(new GamepadInput[]{A, B});
+        index.remove(new GamepadInput[]{A, B, X});
+        index.add(new Combination(new GamepadInput[]{A, X}, "", ""));
+        Assert.assertNotNull("Cursor followed a removed branch", cursor.seek(new GamepadInput[]{A, X}));
+    }
+
+    /**
+     * A cursor steps along keys the same way, also after a jump by an array.
+     */
+    @Test
+    public void cursorByKey() {
+        CombinationIndex.Cursor cursor = index.cursor();
+
+        Assert.assertNotNull(cursor.seek(InputKey.pack(new GamepadInput[]{A})));
+        Assert.assertSame(index.get(new GamepadInput[]{A, B}), cursor.seek(InputKey.pack(new GamepadInput[]{A, B})).getCombination());
+        Assert.assertNull(cursor.seek(InputKey.pack(new GamepadInput[]{A, B, Y})));
+        Assert.assertNotNull(cursor.seek(new GamepadInput[]{A}));
+        Assert.assertSame(index.get(new GamepadInput[]{A, Y}), cursor.seek(InputKey.pack(new GamepadInput[]{A, Y})).getCombination());
+        Assert.assertSame(index.find(new GamepadInput[]{B}), index.find(InputKey.pack(new GamepadInput[]{B})));
+    }
+
+    /**
+     * Completions are ordered by rank, also beyond the ranked ones of a node, and follow updates and removals.
+     */
+    @Test
+    public void ranked() {
+        Map<Combination, Double> ranks = new HashMap<>();
+        CombinationIndex ranked = new CombinationIndex(c -> ranks.getOrDefault(c, 0.0));
+        List<Combination> all = new ArrayList<>();
+        GamepadInput[] values = GamepadInput.values();
+        for (int i = 1; i <= 12; i++) {
+            Combination combination = new Combination(new GamepadInput[]{A, values[i]}, "", "");
+            all.add(combination);
+            ranked.add(combination);
+        }
+
+        List<Combination> result = new ArrayList<>();
+        ranked.completions(ranked.find(new GamepadInput[]{A}), 3, result);
+        Assert.assertEquals("Equal ranks are not in input order", all.subList(0, 3), result);
+
+        ranks.put(all.get(10), 2.0);
+        ranks.put(all.get(5), 1.0);
+        Assert.assertTrue(ranked.update(all.get(10)));
+        Assert.assertTrue(ranked.update(all.get(5)));
+        result.clear();
+        ranked.completions(ranked.find(new GamepadInput[]{A}), 3, result);
+        Assert.assertEquals(all.get(10), result.get(0));
+        Assert.assertEquals(all.get(5), result.get(1));
+        Assert.assertEquals(all.get(0), result.get(2));
+
+        result.clear();
+        ranked.completions(ranked.find(new GamepadInput[]{A}), 20, result);
+        Assert.assertEquals(12, result.size());
+        Assert.assertEquals(all.get(10), result.get(0));
+        Assert.assertEquals(all.get(11), result.get(11));
+
+        ranks.put(all.get(10), -1.0);
+        ranked.update(all.get(10));
+        ranked.remove(all.get(5));
+        result.clear();
+        ranked.completions(ranked.find(new GamepadInput[]{A}), CombinationIndex.TOP, result);
+        Assert.assertEquals(CombinationIndex.TOP, result.size());
+        Assert.assertEquals(all.get(0), result.get(0));
+        Assert.assertFalse("Lowered rank is still ranked", result.contains(all.get(10)));
+    }
+}
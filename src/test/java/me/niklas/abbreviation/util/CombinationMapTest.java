@@ -0,0 +1,49 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class CombinationMapTest {
+
+    /**
+     * Random additions and removals give the same results as a {@link HashMap}, also while the table grows.
+     */
+    @Test
+    public void randomOperations() {
+        CombinationMap map = new CombinationMap();
+        Map<Long, Combination> expected = new HashMap<>();
+        GamepadInput[] values = GamepadInput.values();
+        Random random = new Random(42);
+        Combination[] combinations = new Combination[8];
+        for (int i = 0; i < combinations.length; i++) {
+            combinations[i] = new Combination(new GamepadInput[]{values[i]}, "", "");
+        }
+
+        for (int i = 0; i < 20000; i++) {
+            GamepadInput[] input = new GamepadInput[1 + random.nextInt(3)];
+            for (int j = 0; j < input.length; j++) {
+                input[j] = values[random.nextInt(values.length)];
+            }
+            long key = InputKey.pack(input);
+            if (random.nextInt(3) == 0) {
+                Assert.assertSame(expected.remove(key), map.remove(key));
+            } else {
+                Combination combination = combinations[random.nextInt(combinations.length)];
+                Assert.assertSame(expected.putIfAbsent(key, combination), map.putIfAbsent(key, combination));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Combination> entry : expected.entrySet()) {
+            Assert.assertSame(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        map.clear();
+        Assert.assertEquals(0, map.size());
+        Assert.assertNull(map.get(InputKey.EMPTY));
+    }
+}
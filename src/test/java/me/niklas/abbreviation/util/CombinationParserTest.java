@@ -0,0 +1,64 @@
+package me.niklas.abbreviation.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class CombinationParserTest {
+
+    /**
+     * Sections keep the line numbers of the file, comments and headers become empty lines.
+     */
+    @Test
+    public void sections() {
+        Map<String, String> sections = CombinationParser.parse("//Comment\r\n" +
+                ":init\r\n" +
+                "combination.setName(\"Test\");\r\n" +
+                ":run\n" +
+                "int a = 1;\n" +
+                ":preview\n" +
+                "A preview\n" +
+                ":run\n" +
+                "return a;\n");
+
+        Assert.assertArrayEquals(new String[]{"init", "run", "preview"}, sections.keySet().toArray());
+        Assert.assertEquals("\n\ncombination.setName(\"Test\");\n", sections.get(CombinationParser.INIT));
+        Assert.assertEquals("\n\n\n\nint a = 1;\n\n\n\nreturn a;\n", sections.get(CombinationParser.RUN));
+        Assert.assertEquals("\n\n\n\n\n\nA preview\n", sections.get("preview"));
+    }
+
+    /**
+     * Text without a header belongs to the run script, a byte order mark and invalid UTF-8 do not break parsing.
+     */
+    @Test
+    public void encoding() {
+        byte[] text = "return \"äö\";\n".getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[text.length + 5];
+        data[0] = (byte) 0xEF;
+        data[1] = (byte) 0xBB;
+        data[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, data, 3, text.length);
+        data[data.length - 2] = (byte) 0xC3; //Truncated sequence
+        data[data.length - 1] = 'x';
+
+        Map<String, String> sections = CombinationParser.parse(ByteBuffer.wrap(data), "test");
+        Assert.assertEquals("return \"äö\";\n\uFFFDx\n", sections.get(CombinationParser.RUN));
+    }
+
+    /**
+     * Large generated scripts are parsed in linear time.
+     */
+    @Test(timeout = 5000)
+    public void largeScript() {
+        StringBuilder builder = new StringBuilder(":run\n");
+        for (int i = 0; i < 200000; i++) {
+            builder.append("sum += ").append(i).append(";\n");
+        }
+
+        String run = CombinationParser.parse(builder).get(CombinationParser.RUN);
+        Assert.assertEquals(builder.length() - ":run".length(), run.length()); //The header became an empty line
+    }
+}
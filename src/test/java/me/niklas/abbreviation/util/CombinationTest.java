@@ -7,6 +7,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+
 import static org.junit.Assert.fail;
 
 /**
@@ -55,6 +57,19 @@ public class CombinationTest {
         Assert.assertFalse("Recognizes empty input as correct", combination.hasSameInput(new GamepadInput[0]));
     }
 
+    /**
+     * Combinations are equal exactly if their inputs are equal.
+     */
+    @Test
+    public void equality() {
+        Combination same = new Combination(new GamepadInput[]{GamepadInput.B, GamepadInput.A}, "", "");
+        Combination prefix = new Combination(new GamepadInput[]{GamepadInput.B}, "", "");
+        Assert.assertEquals(combination, same);
+        Assert.assertEquals(combination.hashCode(), same.hashCode());
+        Assert.assertNotEquals(combination, prefix);
+        Assert.assertNotEquals(combination, new Combination(new GamepadInput[]{GamepadInput.A, GamepadInput.B}, "", ""));
+    }
+
     /**
      * Checks whether the run script can be executed correctly. This is also a test for beanshell.
      * <p>
@@ -79,4 +94,41 @@ public class CombinationTest {
 
         Assert.assertEquals("Test", result);
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the input from file names, invalid names are rejected.
+     */
+    @Test
+    public void getInputForFile() {
+        Assert.assertArrayEquals(new GamepadInput[]{GamepadInput.A, GamepadInput.X, GamepadInput.RS_PRESS},
+                Combination.getInputForFile(new File("2-3-24.txt")));
+        Assert.assertArrayEquals(new GamepadInput[]{GamepadInput.A}, Combination.getInputForFile(new File("2")));
+        Assert.assertNull(Combination.getInputForFile(new File(".txt")));
+        Assert.assertNull(Combination.getInputForFile(new File("2--3.txt")));
+        Assert.assertNull(Combination.getInputForFile(new File("-2.txt")));
+        Assert.assertNull(Combination.getInputForFile(new File("2-a.txt")));
+        Assert.assertNull(Combination.getInputForFile(new File("99999999999.txt")));
+    }
+
+    /**
+     * New file names are compact, they are read like the legacy ones and can be longer than any key.
+     */
+    @Test
+    public void compactFileNames() {
+        GamepadInput[] values = GamepadInput.values();
+        GamepadInput[] input = new GamepadInput[64];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = values[i % values.length];
+        }
+        String name = Combination.getFileNameForInputs(input);
+        Assert.assertEquals(input.length + 5, name.length());
+        Assert.assertArrayEquals(input, Combination.getInputForFile(new File(name)));
+
+        Assert.assertEquals("_23o.txt", Combination.getFileNameForInputs(new GamepadInput[]{GamepadInput.A, GamepadInput.X, GamepadInput.RS_PRESS}));
+        Assert.assertArrayEquals(Combination.getInputForFile(new File("2-3-24.txt")), Combination.getInputForFile(new File("_23O.txt")));
+        Assert.assertArrayEquals(new GamepadInput[]{GamepadInput.LB, GamepadInput.RB}, Combination.getInputForFile(new File("_bc")));
+        Assert.assertNull(Combination.getInputForFile(new File("_.txt")));
+        Assert.assertNull("Accepted an unknown input", Combination.getInputForFile(new File("_v.txt")));
+        Assert.assertNull(Combination.getInputForFile(new File("_2-3.txt")));
+    }
+}
@@ -0,0 +1,56 @@
+package me.niklas.abbreviation.util;
+
+import me.niklas.abbreviation.enums.GamepadInput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static me.niklas.abbreviation.enums.GamepadInput.*;
+
+public class InputKeyTest {
+
+    /**
+     * Every input survives packing, keys of different inputs differ (also if one is the prefix of another).
+     */
+    @Test
+    public void packAndUnpack() {
+        GamepadInput[] values = GamepadInput.values();
+        GamepadInput[] inputs = new GamepadInput[InputKey.MAX_LENGTH];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = values[values.length - 1 - i];
+        }
+        long key = InputKey.pack(inputs);
+        Assert.assertEquals(InputKey.MAX_LENGTH, InputKey.length(key));
+        Assert.assertArrayEquals(inputs, InputKey.unpack(key));
+        Assert.assertEquals(inputs[inputs.length - 1], InputKey.last(key));
+
+        Assert.assertNotEquals(InputKey.pack(new GamepadInput[]{NONE}), InputKey.pack(new GamepadInput[]{NONE, NONE}));
+        Assert.assertNotEquals(InputKey.EMPTY, InputKey.pack(new GamepadInput[]{NONE}));
+        Assert.assertEquals(InputKey.pack(new GamepadInput[]{A, B}), InputKey.append(InputKey.pack(new GamepadInput[]{A}), B));
+        Assert.assertNull(InputKey.last(InputKey.EMPTY));
+    }
+
+    /**
+     * The inputs after the last PIPE of a key form the key of the last stage.
+     */
+    @Test
+    public void suffix() {
+        long key = InputKey.pack(new GamepadInput[]{A, PIPE, B, PIPE, X, Y});
+        int pipe = InputKey.lastIndexOf(key, PIPE);
+        Assert.assertEquals(3, pipe);
+        Assert.assertEquals(InputKey.pack(new GamepadInput[]{X, Y}), InputKey.suffix(key, pipe + 1));
+        Assert.assertEquals(key, InputKey.suffix(key, 0));
+        Assert.assertEquals(InputKey.EMPTY, InputKey.suffix(key, InputKey.length(key)));
+        Assert.assertEquals(-1, InputKey.lastIndexOf(InputKey.pack(new GamepadInput[]{A, B}), PIPE));
+    }
+
+    /**
+     * Full keys can not be extended.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void full() {
+        long key = InputKey.EMPTY;
+        for (int i = 0; i <= InputKey.MAX_LENGTH; i++) {
+            key = InputKey.append(key, A);
+        }
+    }
+}
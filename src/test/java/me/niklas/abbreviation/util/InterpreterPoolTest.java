@@ -0,0 +1,89 @@
+package me.niklas.abbreviation.util;
+
+import bsh.EvalError;
+import bsh.Interpreter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class InterpreterPoolTest {
+
+    /**
+     * Bindings are visible to every interpreter, variables set by one script are gone for the next one.
+     */
+    @Test
+    public void isolation() throws EvalError {
+        InterpreterPool pool = new InterpreterPool(Collections.singletonMap("Name", "Pool"), "", 1, 1);
+
+        Assert.assertEquals("Pool", pool.eval("return Name;", null, null));
+        Assert.assertEquals("First", pool.eval("return value;", "value", "First"));
+
+        Interpreter interpreter = pool.acquire();
+        try {
+            Assert.assertNull("Variable was kept", interpreter.get("value"));
+            Assert.assertEquals("Binding was cleared", "Pool", interpreter.get("Name"));
+        } finally {
+            pool.release(interpreter);
+        }
+    }
+
+    /**
+     * Interpreters are reused, once all are in use further callers wait until one is released.
+     */
+    @Test
+    public void exhaustion() throws Exception {
+        InterpreterPool pool = new InterpreterPool(Collections.emptyMap(), "", 0, 2);
+        Interpreter first = pool.acquire();
+        Interpreter second = pool.acquire();
+        Assert.assertNotSame(first, second);
+
+        CompletableFuture<Interpreter> third = CompletableFuture.supplyAsync(pool::acquire);
+        try {
+            third.get(200, TimeUnit.MILLISECONDS);
+            Assert.fail("Exceeded the maximum size");
+        } catch (TimeoutException ignored) {
+        }
+
+        pool.release(first);
+        Assert.assertSame("Interpreter was not reused", first, third.get(1, TimeUnit.SECONDS));
+        pool.release(second);
+        pool.release(first);
+    }
+
+    /**
+     * Interpreters held by a thread which does not stop are replaced, and dropped once they are released.
+     */
+    @Test
+    public void abandon() throws Exception {
+        InterpreterPool pool = new InterpreterPool(Collections.emptyMap(), "", 0, 1);
+        Interpreter stuck = pool.acquire();
+        Assert.assertEquals(1, pool.abandon(Thread.currentThread()));
+        Assert.assertEquals("Abandoned twice", 0, pool.abandon(Thread.currentThread()));
+
+        Interpreter replacement = CompletableFuture.supplyAsync(pool::acquire).get(1, TimeUnit.SECONDS);
+        Assert.assertNotSame(stuck, replacement);
+        pool.release(stuck);
+        pool.release(replacement);
+        Assert.assertSame("Abandoned interpreter was reused", replacement, pool.acquire());
+    }
+
+    /**
+     * A script evaluating another script must not wait for its own interpreter.
+     */
+    @Test(timeout = 5000)
+    public void nested() throws EvalError {
+        InterpreterPool pool = new InterpreterPool(Collections.emptyMap(), "", 0, 1);
+        Interpreter interpreter = pool.acquire();
+        try {
+            Assert.assertEquals(2, pool.eval("return value;", "value", 2)); //As Utils.executeJava would
+        } finally {
+            pool.release(interpreter);
+        }
+        Assert.assertSame("Additional interpreter was kept", interpreter, pool.acquire());
+        pool.release(interpreter);
+    }
+}
@@ -0,0 +1,95 @@
+package me.niklas.abbreviation.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ProcessLauncherTest {
+
+    private final ProcessLauncher launcher = new ProcessLauncher();
+
+    @After
+    public void tearDown() {
+        launcher.shutdown();
+    }
+
+    /**
+     * Both output streams are passed to their callbacks line by line, the exit code is reported afterwards.
+     */
+    @Test
+    public void output() throws Exception {
+        List<String> output = new CopyOnWriteArrayList<>();
+        List<String> errors = new CopyOnWriteArrayList<>();
+
+        LaunchedProcess process = launcher.launch(ProcessLauncher.shell("echo first&& echo second&& echo error 1>&2&& exit 3"),
+                output::add, errors::add, 0);
+
+        Assert.assertEquals(3, process.waitFor(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, output.size());
+        Assert.assertEquals("first", output.get(0).trim());
+        Assert.assertEquals("second", output.get(1).trim());
+        Assert.assertEquals("error", errors.get(0).trim());
+        Assert.assertFalse(process.isTimedOut());
+    }
+
+    /**
+     * Processes which keep their output open must not keep the output of other processes from being read.
+     */
+    @Test
+    public void longRunning() throws Exception {
+        if (OperatingSystem.WINDOWS) {
+            System.out.println("Skipping long running test because this is a windows system.");
+            return;
+        }
+
+        for (int i = 0; i < 2 * Runtime.getRuntime().availableProcessors() + 4; i++) {
+            launcher.launch(ProcessLauncher.shell("sleep 10"), line -> {
+            }, line -> {
+            }, 2000);
+        }
+        List<String> output = new CopyOnWriteArrayList<>();
+        LaunchedProcess process = launcher.launch(ProcessLauncher.shell("echo done"), output::add, null, 0);
+        Assert.assertEquals(0, process.waitFor(1, TimeUnit.SECONDS));
+        Assert.assertEquals("done", output.get(0));
+    }
+
+    /**
+     * A process exceeding its timeout is killed.
+     */
+    @Test
+    public void timeout() throws Exception {
+        if (OperatingSystem.WINDOWS) {
+            System.out.println("Skipping timeout test because this is a windows system.");
+            return;
+        }
+
+        LaunchedProcess process = launcher.launch(ProcessLauncher.shell("sleep 10"), null, null, 200);
+        Assert.assertNotEquals("Not killed", -1, process.waitFor(5, TimeUnit.SECONDS));
+        Assert.assertTrue(process.isTimedOut());
+        Assert.assertFalse(process.isAlive());
+    }
+
+    /**
+     * The program running the tests has to be found, with and without its extension.
+     */
+    @Test
+    public void snapshot() {
+        String command = ProcessHandle.current().info().command().orElse(null);
+        if (command == null) {
+            System.out.println("Skipping snapshot test because the command of this process is not visible.");
+            return;
+        }
+        String name = new File(command).getName();
+
+        ProcessSnapshot snapshot = new ProcessSnapshot();
+        Assert.assertTrue(snapshot.isRunning(name));
+        Assert.assertTrue(snapshot.isRunning(name.toUpperCase().replace(".EXE", "")));
+        Assert.assertSame("Snapshot was not cached", snapshot.getNames(), snapshot.getNames());
+        Assert.assertFalse(snapshot.isRunning("not-a-running-program"));
+    }
+}